@@ -0,0 +1,56 @@
+package io.helidon.examples.conference.mp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.PrivateKey;
+import java.security.spec.InvalidKeySpecException;
+
+import org.tomitribe.auth.signatures.PEM;
+
+/**
+ * Fixed signing credentials for the benchmarks, so they run offline and sign
+ * exactly the same bytes on every run. The key is a throwaway key generated for
+ * benchmarking only.
+ */
+final class BenchmarkKeys {
+
+	static final String API_KEY = "ocid1.tenancy.oc1..benchmark/ocid1.user.oc1..benchmark/"
+			+ "00:11:22:33:44:55:66:77:88:99:aa:bb:cc:dd:ee:ff";
+
+	static final String URI = "https://containerengine.ap-tokyo-1.oraclecloud.com/20180222/clusters"
+			+ "?compartmentId=ocid1.compartment.oc1..benchmark";
+
+	private static final String PRIVATE_KEY_RESOURCE = "/benchmark-private.pem";
+
+	private BenchmarkKeys() {
+	}
+
+	static PrivateKey privateKey() {
+		try (InputStream in = BenchmarkKeys.class.getResourceAsStream(PRIVATE_KEY_RESOURCE)) {
+			return PEM.readPrivateKey(in);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (InvalidKeySpecException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Copy the private key to a temporary file, for code that reads the key by
+	 * file name.
+	 */
+	static Path privateKeyFile() {
+		try (InputStream in = BenchmarkKeys.class.getResourceAsStream(PRIVATE_KEY_RESOURCE)) {
+			Path file = Files.createTempFile("benchmark-private", ".pem");
+			file.toFile().deleteOnExit();
+			Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+			return file;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package io.helidon.examples.conference.mp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the JSON built by {@link GreetResource}: the greeting response,
+ * and checking the JVM system properties against their snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GreetingBenchmark {
+
+	private GreetResource resource;
+	private GreetingProvider provider;
+	private final ByteArrayOutputStream output = new ByteArrayOutputStream(256);
+
+	@Setup
+	public void setup() {
+		provider = new GreetingProvider("Hello", 100, 1000);
+		resource = new GreetResource(provider);
+		resource.greetManager = new GreetMananger(32, 1000);
+	}
+
+	@Benchmark
+	public int createResponse() throws IOException {
+		output.reset();
+		provider.getTemplate().render("Joe", " (security: ", "jack", ")").write(output);
+		return output.size();
+	}
+
+	@Benchmark
+	public PropertiesSnapshot propertiesSnapshot() {
+		return resource.greetManager.update(System.getProperties());
+	}
+}
@@ -0,0 +1,58 @@
+package io.helidon.examples.conference.mp;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.helidon.examples.conference.mp.common.util.RestUtil;
+import io.helidon.examples.conference.mp.common.util.SignerRegistry;
+
+/**
+ * Throughput of {@link RestUtil#RestHeaders}, including the signer lookup in
+ * the {@link SignerRegistry}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RestHeadersBenchmark {
+
+	private RestUtil restUtil;
+	private String privateKeyFilename;
+	private JsonObject body;
+
+	@Setup
+	public void setup() {
+		// RestHeaders only signs, it never executes a request
+		restUtil = new RestUtil(null, new SignerRegistry(1000), null, null, null, null);
+		privateKeyFilename = BenchmarkKeys.privateKeyFile().toString();
+		body = Json.createBuilderFactory(Collections.emptyMap()).createObjectBuilder()
+				.add("compartmentId", "ocid1.compartment.oc1..benchmark").add("name", "benchmark-cluster")
+				.add("kubernetesVersion", "v1.13.5").build();
+	}
+
+	@Benchmark
+	public String[] headersGet() {
+		return restUtil.RestHeaders(BenchmarkKeys.API_KEY, privateKeyFilename, "get", BenchmarkKeys.URI, null);
+	}
+
+	@Benchmark
+	public String[] headersPost() {
+		return restUtil.RestHeaders(BenchmarkKeys.API_KEY, privateKeyFilename, "post", BenchmarkKeys.URI, body);
+	}
+}
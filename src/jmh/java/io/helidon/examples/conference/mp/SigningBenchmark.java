@@ -0,0 +1,75 @@
+package io.helidon.examples.conference.mp;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ByteArrayEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.helidon.examples.conference.mp.common.util.Signing.RequestSigner;
+
+/**
+ * Throughput of {@link RequestSigner#signRequest} for GET, and for POST with
+ * different body sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SigningBenchmark {
+
+	private RequestSigner signer;
+
+	@Setup
+	public void setup() {
+		signer = new RequestSigner(BenchmarkKeys.API_KEY, BenchmarkKeys.privateKey());
+	}
+
+	/**
+	 * Request body of a POST.
+	 */
+	@State(Scope.Benchmark)
+	public static class Body {
+
+		@Param({ "0", "1024", "65536", "1048576" })
+		int size;
+
+		byte[] bytes;
+
+		@Setup
+		public void setup() {
+			bytes = new byte[size];
+			new Random(42).nextBytes(bytes);
+		}
+	}
+
+	@Benchmark
+	public HttpRequestBase signGet() {
+		HttpGet request = new HttpGet(BenchmarkKeys.URI);
+		signer.signRequest(request);
+		return request;
+	}
+
+	@Benchmark
+	public HttpRequestBase signPost(Body body) {
+		HttpPost request = new HttpPost(BenchmarkKeys.URI);
+		request.setEntity(new ByteArrayEntity(body.bytes));
+		signer.signRequest(request);
+		return request;
+	}
+}
@@ -0,0 +1,165 @@
+package io.helidon.examples.conference.mp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Open-model load generator: requests are started at a fixed arrival rate no
+ * matter how long earlier ones take, and latency is measured from the time a
+ * request was scheduled to start, so a stalled server shows up in the
+ * percentiles instead of silently lowering the offered load.
+ */
+final class LoadGenerator {
+
+	private final String authorization;
+	private final int connectTimeout;
+	private final int readTimeout;
+
+	/**
+	 * @param user        user for HTTP basic authentication
+	 * @param password    password for HTTP basic authentication
+	 * @param timeoutMillis connect and read timeout of each request
+	 */
+	LoadGenerator(String user, String password, int timeoutMillis) {
+		this.authorization = "Basic "
+				+ Base64.getEncoder().encodeToString((user + ":" + password).getBytes(StandardCharsets.UTF_8));
+		this.connectTimeout = timeoutMillis;
+		this.readTimeout = timeoutMillis;
+	}
+
+	/**
+	 * Send GET requests to a URL at a fixed rate.
+	 *
+	 * @param url             URL to load
+	 * @param ratePerSecond   requests started per second
+	 * @param durationSeconds duration of the run
+	 * @return the measured results
+	 */
+	Result run(String url, int ratePerSecond, int durationSeconds) throws InterruptedException {
+
+		int total = ratePerSecond * durationSeconds;
+		long[] latencies = new long[total];
+		AtomicInteger completed = new AtomicInteger();
+		AtomicInteger errors = new AtomicInteger();
+		AtomicInteger scheduled = new AtomicInteger();
+
+		ExecutorService workers = Executors.newCachedThreadPool();
+		ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+		long intervalNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+		long start = System.nanoTime();
+
+		ticker.scheduleAtFixedRate(() -> {
+			int index = scheduled.getAndIncrement();
+			if (index >= total) {
+				return;
+			}
+			long intended = start + index * intervalNanos;
+			workers.execute(() -> {
+				boolean ok = get(url);
+				latencies[index] = System.nanoTime() - intended;
+				if (!ok) {
+					errors.incrementAndGet();
+				}
+				completed.incrementAndGet();
+			});
+		}, 0, intervalNanos, TimeUnit.NANOSECONDS);
+
+		while (scheduled.get() < total) {
+			Thread.sleep(10);
+		}
+		ticker.shutdownNow();
+		workers.shutdown();
+		workers.awaitTermination(readTimeout + connectTimeout, TimeUnit.MILLISECONDS);
+		long elapsed = System.nanoTime() - start;
+
+		return new Result(url, ratePerSecond, Arrays.copyOf(latencies, total), completed.get(), errors.get(),
+				elapsed);
+	}
+
+	private boolean get(String url) {
+
+		HttpURLConnection connection = null;
+		try {
+			connection = (HttpURLConnection) new URL(url).openConnection();
+			connection.setConnectTimeout(connectTimeout);
+			connection.setReadTimeout(readTimeout);
+			connection.setRequestProperty("Authorization", authorization);
+			connection.setRequestProperty("Accept", "application/json");
+			int status = connection.getResponseCode();
+			InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+			if (body != null) {
+				drain(body);
+			}
+			return status < 400;
+		} catch (IOException e) {
+			return false;
+		} finally {
+			if (connection != null) {
+				connection.disconnect();
+			}
+		}
+	}
+
+	private static void drain(InputStream body) throws IOException {
+		byte[] buffer = new byte[8192];
+		try (InputStream in = body) {
+			while (in.read(buffer) >= 0) {
+				// discard
+			}
+		}
+	}
+
+	/**
+	 * Throughput and latency distribution of one run.
+	 */
+	static final class Result {
+
+		private final String url;
+		private final int rate;
+		private final long[] sortedLatencies;
+		private final int completed;
+		private final int errors;
+		private final long elapsedNanos;
+
+		private Result(String url, int rate, long[] latencies, int completed, int errors, long elapsedNanos) {
+			this.url = url;
+			this.rate = rate;
+			this.sortedLatencies = latencies;
+			Arrays.sort(this.sortedLatencies);
+			this.completed = completed;
+			this.errors = errors;
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		private double percentileMillis(double percentile) {
+			if (sortedLatencies.length == 0) {
+				return 0;
+			}
+			int index = (int) Math.ceil(percentile / 100 * sortedLatencies.length) - 1;
+			return sortedLatencies[Math.max(0, Math.min(index, sortedLatencies.length - 1))] / 1_000_000d;
+		}
+
+		static String header() {
+			return String.format("%-45s %7s %9s %7s %9s %9s %9s %9s %9s", "url", "rate/s", "thrpt/s", "errors",
+					"p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+		}
+
+		@Override
+		public String toString() {
+			double throughput = completed / (elapsedNanos / 1_000_000_000d);
+			return String.format("%-45s %7d %9.1f %7d %9.2f %9.2f %9.2f %9.2f %9.2f", url, rate, throughput, errors,
+					percentileMillis(50), percentileMillis(90), percentileMillis(99), percentileMillis(99.9),
+					percentileMillis(100));
+		}
+	}
+}
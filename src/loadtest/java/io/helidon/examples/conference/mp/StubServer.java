@@ -0,0 +1,141 @@
+package io.helidon.examples.conference.mp;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * In-process stand-in for the services the application calls: the OCI
+ * container engine ListClusters endpoint and the {@code /greet} service that
+ * {@code /greet/outbound} targets on {@code localhost:8080}.
+ *
+ * <p>
+ * Every response is delayed by a fixed latency plus a random jitter, and a
+ * configurable fraction of requests fails with 500, or with 429 and a
+ * {@code Retry-After} header. ListClusters is paginated through
+ * {@code opc-next-page} like the real API.
+ * </p>
+ */
+final class StubServer {
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final long latencyMillis;
+	private final long jitterMillis;
+	private final double errorRate;
+	private final int pages;
+
+	/**
+	 * @param port          port to listen on
+	 * @param clustersPath  path of the ListClusters API, e.g. /20180222/clusters
+	 * @param latencyMillis fixed latency added to every response
+	 * @param jitterMillis  maximum random latency added on top
+	 * @param errorRate     fraction of requests failing, between 0 and 1
+	 * @param pages         number of ListClusters pages
+	 */
+	StubServer(int port, String clustersPath, long latencyMillis, long jitterMillis, double errorRate, int pages)
+			throws IOException {
+		this.latencyMillis = latencyMillis;
+		this.jitterMillis = jitterMillis;
+		this.errorRate = errorRate;
+		this.pages = pages;
+		this.executor = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "stub-server");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.server = HttpServer.create(new InetSocketAddress("localhost", port), 1024);
+		this.server.setExecutor(executor);
+		this.server.createContext(clustersPath, this::listClusters);
+		this.server.createContext("/greet", this::greet);
+	}
+
+	void start() {
+		server.start();
+	}
+
+	void stop() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	private void listClusters(HttpExchange exchange) throws IOException {
+
+		if (delayOrFail(exchange)) {
+			return;
+		}
+		String query = exchange.getRequestURI().getRawQuery();
+		int page = 0;
+		if (query != null && query.contains("page=")) {
+			page = Integer.parseInt(query.substring(query.indexOf("page=") + 5).split("&")[0]);
+		}
+		if (page + 1 < pages) {
+			exchange.getResponseHeaders().add("opc-next-page", Integer.toString(page + 1));
+		}
+		StringBuilder body = new StringBuilder("[");
+		for (int i = 0; i < 10; i++) {
+			if (i > 0) {
+				body.append(',');
+			}
+			body.append("{\"id\":\"ocid1.cluster.oc1..stub").append(page).append('-').append(i)
+					.append("\",\"name\":\"cluster-").append(page).append('-').append(i)
+					.append("\",\"lifecycleState\":\"ACTIVE\",\"kubernetesVersion\":\"v1.13.5\"}");
+		}
+		body.append(']');
+		respond(exchange, 200, body.toString());
+	}
+
+	private void greet(HttpExchange exchange) throws IOException {
+
+		if (delayOrFail(exchange)) {
+			return;
+		}
+		String path = exchange.getRequestURI().getPath();
+		String name = path.substring(path.lastIndexOf('/') + 1);
+		respond(exchange, 200, "{\"message\":\"Hello " + name + " (stub)!\"}");
+	}
+
+	/**
+	 * Apply the configured latency, and answer with an error for the configured
+	 * fraction of requests.
+	 *
+	 * @return true if an error was sent
+	 */
+	private boolean delayOrFail(HttpExchange exchange) throws IOException {
+
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		try {
+			Thread.sleep(latencyMillis + (jitterMillis > 0 ? random.nextLong(jitterMillis + 1) : 0));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (random.nextDouble() >= errorRate) {
+			return false;
+		}
+		if (random.nextBoolean()) {
+			exchange.getResponseHeaders().add("Retry-After", "1");
+			respond(exchange, 429, "{\"code\":\"TooManyRequests\"}");
+		} else {
+			respond(exchange, 500, "{\"code\":\"InternalServerError\"}");
+		}
+		return true;
+	}
+
+	private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.getResponseHeaders().add("opc-request-id", "stub-" + Long.toHexString(System.nanoTime()));
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+}
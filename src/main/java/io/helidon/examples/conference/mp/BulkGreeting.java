@@ -0,0 +1,149 @@
+package io.helidon.examples.conference.mp;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import javax.json.Json;
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParser.Event;
+import javax.json.stream.JsonParserFactory;
+import javax.json.stream.JsonParsingException;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Histogram;
+import org.eclipse.microprofile.metrics.Timer;
+
+import io.helidon.examples.conference.mp.common.util.JsonBuffer;
+
+/**
+ * Greets a stream of names, writing one greeting per line (NDJSON) while the
+ * names are still being read.
+ *
+ * <p>
+ * Names come either as one JSON array, read with a streaming parser, or as
+ * NDJSON with one JSON string per line. Neither the names nor the greetings
+ * are collected in memory; output is flushed every {@value #FLUSH_EVERY}
+ * greetings so the client receives them incrementally. Input that is not a
+ * name ends the stream with an {@code {"error":...}} line, as the status has
+ * already been sent.
+ * </p>
+ *
+ * <p>
+ * The resource method only creates this object; the names are greeted when
+ * the response is written, so the duration of the request is timed here.
+ * </p>
+ */
+final class BulkGreeting implements StreamingOutput {
+
+	private static final JsonParserFactory PARSERS = Json.createParserFactory(Collections.emptyMap());
+
+	private static final int FLUSH_EVERY = 256;
+
+	private final GreetingTemplate template;
+	private final String user;
+	private final InputStream names;
+	private final boolean ndjson;
+	private final Counter items;
+	private final Histogram itemsPerRequest;
+	private final Timer duration;
+	private int count;
+
+	/**
+	 * @param template        the greeting used for the whole stream
+	 * @param user            the authenticated user, written after each name
+	 * @param names           the request entity
+	 * @param ndjson          true for one name per line, false for a JSON array
+	 * @param items           counts all greeted names
+	 * @param itemsPerRequest records the number of names per request
+	 * @param duration        times reading the names and writing the greetings
+	 */
+	BulkGreeting(GreetingTemplate template, String user, InputStream names, boolean ndjson, Counter items,
+			Histogram itemsPerRequest, Timer duration) {
+		this.template = template;
+		this.user = user;
+		this.names = names;
+		this.ndjson = ndjson;
+		this.items = items;
+		this.itemsPerRequest = itemsPerRequest;
+		this.duration = duration;
+	}
+
+	@Override
+	public void write(OutputStream output) throws IOException {
+
+		Timer.Context timing = duration.time();
+		try {
+			if (ndjson) {
+				greetLines(output);
+			} else {
+				greetArray(output);
+			}
+		} catch (JsonParsingException | IllegalArgumentException e) {
+			writeError(output, e.getMessage());
+		} finally {
+			itemsPerRequest.update(count);
+			try {
+				output.flush();
+			} finally {
+				timing.stop();
+			}
+		}
+	}
+
+	private void greetArray(OutputStream output) throws IOException {
+
+		try (JsonParser parser = PARSERS.createParser(names, StandardCharsets.UTF_8)) {
+			if (!parser.hasNext() || parser.next() != Event.START_ARRAY) {
+				throw new IllegalArgumentException("Expected a JSON array of names");
+			}
+			while (parser.hasNext()) {
+				Event event = parser.next();
+				if (event == Event.END_ARRAY) {
+					break;
+				}
+				if (event != Event.VALUE_STRING) {
+					throw new IllegalArgumentException("Names must be strings");
+				}
+				greet(output, parser.getString());
+			}
+		}
+	}
+
+	private void greetLines(OutputStream output) throws IOException {
+
+		BufferedReader lines = new BufferedReader(new InputStreamReader(names, StandardCharsets.UTF_8));
+		String line;
+		while ((line = lines.readLine()) != null) {
+			if (line.trim().isEmpty()) {
+				continue;
+			}
+			try (JsonParser parser = PARSERS.createParser(new StringReader(line))) {
+				if (!parser.hasNext() || parser.next() != Event.VALUE_STRING) {
+					throw new IllegalArgumentException("Line " + (count + 1) + " is not a JSON string");
+				}
+				greet(output, parser.getString());
+			}
+		}
+	}
+
+	private void greet(OutputStream output, String name) throws IOException {
+
+		template.appendTo(JsonBuffer.forThread(), name, " (security: ", user, ")").append('\n').writeTo(output);
+		items.inc();
+		if (++count % FLUSH_EVERY == 0) {
+			output.flush();
+		}
+	}
+
+	private static void writeError(OutputStream output, String message) throws IOException {
+		JsonBuffer.forThread().append("{\"error\":\"".getBytes(StandardCharsets.UTF_8))
+				.appendEscaped(String.valueOf(message)).append('"').append('}').append('\n').writeTo(output);
+	}
+}
@@ -34,6 +34,6 @@ public class GreetApplication extends Application {
 
     @Override
     public Set<Class<?>> getClasses() {
-        return CollectionsHelper.setOf(GreetResource.class, OpenAPISupport.class);
+        return CollectionsHelper.setOf(GreetResource.class, JsonResponseWriter.class, OpenAPISupport.class);
     }
 }
@@ -1,21 +1,144 @@
 package io.helidon.examples.conference.mp;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Lock-free store of the recorded system properties.
+ *
+ * <p>
+ * The current {@link PropertiesSnapshot} and the last {@code historySize}
+ * {@link PropertiesChange}s are held together in one immutable state published
+ * through an {@link AtomicReference}. Readers never lock; a writer only builds
+ * a new state when the properties changed, and installs it with a
+ * compare-and-set.
+ * </p>
+ *
+ * <p>
+ * Comparing the properties holds their lock, which every reader of a system
+ * property needs too, so they are compared at most once per
+ * {@code checkIntervalMillis}, by one caller; the others get the recorded
+ * snapshot.
+ * </p>
+ */
 @ApplicationScoped
 public class GreetMananger {
 
-	private Properties systemProterties = new Properties();
+	private final AtomicReference<State> state;
+	private final long checkIntervalNanos;
+	/**
+	 * {@link System#nanoTime()} from which the properties are compared again.
+	 */
+	private final AtomicLong nextCheck;
+
+	/**
+	 * @param historySize         number of recent changes kept
+	 * @param checkIntervalMillis minimum time between two comparisons of the
+	 *                            properties
+	 */
+	@Inject
+	public GreetMananger(@ConfigProperty(name = "greet.properties.history.size", defaultValue = "32") int historySize,
+			@ConfigProperty(name = "greet.properties.check.interval.ms", defaultValue = "1000") long checkIntervalMillis) {
+		this.state = new AtomicReference<>(new State(PropertiesSnapshot.empty(), new PropertiesChange[historySize], 0));
+		this.checkIntervalNanos = TimeUnit.MILLISECONDS.toNanos(checkIntervalMillis);
+		this.nextCheck = new AtomicLong(System.nanoTime());
+	}
+
+	/**
+	 * Record the current content of {@code systemProterties}, unless it was
+	 * compared less than the check interval ago. The snapshot is only rebuilt,
+	 * its version bumped and the change added to the history, when the content
+	 * changed.
+	 *
+	 * @return the snapshot matching {@code systemProterties} as of the last
+	 *         comparison
+	 */
+	public PropertiesSnapshot update(Properties systemProterties) {
+
+		long now = System.nanoTime();
+		long due = this.nextCheck.get();
+		if (now - due < 0 || !this.nextCheck.compareAndSet(due, now + this.checkIntervalNanos)) {
+			return this.state.get().snapshot;
+		}
+		return this.state.updateAndGet(current -> current.refresh(systemProterties)).snapshot;
+	}
+
+	/**
+	 * @return the last recorded snapshot
+	 */
+	public PropertiesSnapshot getSnapshot() {
 
-	public void update(Properties systemProterties) {
+		return this.state.get().snapshot;
+	}
+
+	/**
+	 * @param sinceVersion only changes to a later version are returned
+	 * @return the recorded changes, oldest first
+	 */
+	public List<PropertiesChange> getHistory(long sinceVersion) {
 
-		this.systemProterties = systemProterties;
+		return this.state.get().changesSince(sinceVersion);
 	}
 
-	public Properties getProperties() {
+	/**
+	 * Snapshot plus a ring buffer of the changes that led to it. The ring array
+	 * is copied, never modified, once the state is published.
+	 */
+	private static final class State {
+
+		private final PropertiesSnapshot snapshot;
+		private final PropertiesChange[] ring;
+		/**
+		 * Number of changes recorded since startup; the newest is at
+		 * {@code (count - 1) % ring.length}.
+		 */
+		private final long count;
+
+		private State(PropertiesSnapshot snapshot, PropertiesChange[] ring, long count) {
+			this.snapshot = snapshot;
+			this.ring = ring;
+			this.count = count;
+		}
+
+		private State refresh(Properties properties) {
+
+			PropertiesSnapshot refreshed = snapshot.refresh(properties);
+			if (refreshed == snapshot) {
+				return this;
+			}
+			if (ring.length == 0) {
+				return new State(refreshed, ring, count + 1);
+			}
+			PropertiesChange[] next = Arrays.copyOf(ring, ring.length);
+			next[(int) (count % ring.length)] = PropertiesChange.between(snapshot, refreshed);
+			return new State(refreshed, next, count + 1);
+		}
+
+		private List<PropertiesChange> changesSince(long sinceVersion) {
 
-		return this.systemProterties;
+			int kept = (int) Math.min(count, ring.length);
+			if (kept == 0) {
+				return Collections.emptyList();
+			}
+			List<PropertiesChange> changes = new ArrayList<>(kept);
+			for (long i = count - kept; i < count; i++) {
+				PropertiesChange change = ring[(int) (i % ring.length)];
+				if (change.version() > sinceVersion) {
+					changes.add(change);
+				}
+			}
+			return changes;
+		}
 	}
 }
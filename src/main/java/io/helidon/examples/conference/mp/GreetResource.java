@@ -16,28 +16,63 @@
 
 package io.helidon.examples.conference.mp;
 
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
 
 import javax.annotation.security.RolesAllowed;
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
 import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
 import javax.json.JsonBuilderFactory;
 import javax.json.JsonObject;
 import javax.json.JsonObjectBuilder;
+import javax.json.JsonString;
+import javax.json.JsonValue;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.ProcessingException;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.client.Invocation;
 import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
 
 import org.eclipse.microprofile.faulttolerance.Fallback;
+import org.eclipse.microprofile.metrics.MetricRegistry;
 import org.eclipse.microprofile.metrics.annotation.Counted;
 import org.eclipse.microprofile.metrics.annotation.Timed;
 import org.eclipse.microprofile.openapi.annotations.Operation;
@@ -50,12 +85,25 @@ import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
 import org.glassfish.jersey.server.Uri;
 
 import io.helidon.examples.conference.mp.common.config.AppConfig;
+import io.helidon.examples.conference.mp.common.config.OciSettings;
+import io.helidon.examples.conference.mp.common.util.ConcurrencyLimiter;
+import io.helidon.examples.conference.mp.common.util.ConcurrencyLimiters;
+import io.helidon.examples.conference.mp.common.util.FanOut;
+import io.helidon.examples.conference.mp.common.util.MultiRegionPages;
+import io.helidon.examples.conference.mp.common.util.ResponseCache;
+import io.helidon.examples.conference.mp.common.util.RestClientEngine;
+import io.helidon.examples.conference.mp.common.util.RestResponse;
 import io.helidon.examples.conference.mp.common.util.RestUtil;
+import io.helidon.examples.conference.mp.common.util.Tracing;
 import io.helidon.security.Principal;
 import io.helidon.security.SecurityContext;
 import io.helidon.security.annotations.Authenticated;
 import io.helidon.security.integration.jersey.ClientSecurityFeature;
 import io.helidon.security.integration.jersey.SecureClient;
+import io.opentracing.Scope;
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import io.opentracing.tag.Tags;
 
 /**
  * A simple JAX-RS resource to greet you. Examples:
@@ -67,6 +115,20 @@ import io.helidon.security.integration.jersey.SecureClient;
  * Change greeting curl -X PUT -H "Content-Type: application/json" -d
  * '{"greeting" : "Howdy"}' http://localhost:8080/greet/greeting
  *
+ * Greet in French: curl -X PUT -u jack:jackIsGreat -H "Content-Type:
+ * application/json" -d '{"greeting" : "Bonjour"}'
+ * http://localhost:8080/greet/greeting/locales/fr, then curl -H
+ * "Accept-Language: fr" http://localhost:8080/greet
+ *
+ * Follow greeting changes: curl -N http://localhost:8080/greet/events
+ *
+ * Greet many names, one greeting per line: curl -X POST -H "Content-Type:
+ * application/x-ndjson" --data-binary @names.ndjson http://localhost:8080/greet/bulk
+ *
+ * Greet several names through the outbound target: curl -X POST -H
+ * "Content-Type: application/json" -d '["Joe", "Jill"]'
+ * http://localhost:8080/greet/outbound
+ *
  * The message is returned as a JSON object.
  */
 @Path("/greet")
@@ -76,6 +138,20 @@ public class GreetResource {
 
 	private static final JsonBuilderFactory JSON = Json.createBuilderFactory(Collections.emptyMap());
 
+	/**
+	 * Newline delimited JSON: one JSON value per line.
+	 */
+	static final String NDJSON = "application/x-ndjson";
+	static final MediaType NDJSON_TYPE = MediaType.valueOf(NDJSON);
+
+	/**
+	 * Request header naming the tenant whose greetings are used.
+	 */
+	static final String TENANT_HEADER = "X-Tenant";
+
+	private static final String GREETING_VARY = HttpHeaders.AUTHORIZATION + ", " + HttpHeaders.ACCEPT_LANGUAGE + ", "
+			+ TENANT_HEADER;
+
 	/**
 	 * The greeting message provider.
 	 */
@@ -91,6 +167,30 @@ public class GreetResource {
 	@Inject
 	AppConfig appConfig;
 
+	@Inject
+	RestUtil restUtil;
+
+	@Inject
+	ResponseCache responseCache;
+
+	@Inject
+	RestClientEngine engine;
+
+	@Inject
+	MetricRegistry metrics;
+
+	@Inject
+	GreetingBroadcaster greetingBroadcaster;
+
+	@Inject
+	ConcurrencyLimiters limiters;
+
+	@Inject
+	OutboundHedger hedger;
+
+	@Inject
+	Tracer tracer;
+
 	/**
 	 * Using constructor injection to get a configuration property. By default this
 	 * gets the value from META-INF/microprofile-config
@@ -105,7 +205,7 @@ public class GreetResource {
 	/**
 	 * Return a wordly greeting message.
 	 *
-	 * @return {@link JsonObject}
+	 * @return the greeting JSON object
 	 */
 	@SuppressWarnings("checkstyle:designforextension")
 	@GET
@@ -114,17 +214,18 @@ public class GreetResource {
 	@Produces(MediaType.APPLICATION_JSON)
 	@Timed
 	@Counted(name = "greet.default.counter", monotonic = true, absolute = true)
-	public JsonObject getDefaultMessage(@Context SecurityContext context) {
+	public Response getDefaultMessage(@Context SecurityContext context, @Context Request request,
+			@HeaderParam(HttpHeaders.ACCEPT_LANGUAGE) String acceptLanguage, @HeaderParam(TENANT_HEADER) String tenant) {
 		String user = context.userPrincipal().map(Principal::getName).orElse("World");
 
-		return createResponse(user);
+		return createResponse(request, greetingProvider.getTemplate(acceptLanguage, tenant), user);
 	}
 
 	/**
 	 * Return a greeting message using the name that was provided.
 	 *
 	 * @param name the name to greet
-	 * @return {@link JsonObject}
+	 * @return the greeting JSON object
 	 */
 	@SuppressWarnings("checkstyle:designforextension")
 	@Path("/{name}")
@@ -134,14 +235,59 @@ public class GreetResource {
 	@Produces(MediaType.APPLICATION_JSON)
 	@Timed
 	@Counted(name = "greet.message.counter", monotonic = true, absolute = true)
-	public JsonObject getMessage(@PathParam("name") String name, @Context SecurityContext context) {
+	public Response getMessage(@PathParam("name") String name, @Context SecurityContext context,
+			@Context Request request, @HeaderParam(HttpHeaders.ACCEPT_LANGUAGE) String acceptLanguage,
+			@HeaderParam(TENANT_HEADER) String tenant) {
 		String user = context.userPrincipal().map(Principal::getName).orElse("Anonymous");
 
-		return createResponse(name + " (security: " + user + ")");
+		return createResponse(request, greetingProvider.getTemplate(acceptLanguage, tenant), name, " (security: ",
+				user, ")");
 	}
 
 	/**
-	 * Set the greeting to use in future messages.
+	 * Greet many names in one exchange. The names are read from a JSON array, or
+	 * from NDJSON with one JSON string per line, and one greeting per line is
+	 * streamed back while the input is still being read.
+	 *
+	 * @param names the request entity
+	 * @return NDJSON greetings, in the order of the names
+	 */
+	@POST
+	@Path("/bulk")
+	@Consumes({ MediaType.APPLICATION_JSON, NDJSON })
+	@Produces(NDJSON)
+	@Operation(summary = "Returns a personalized greeting for each name", description = "Streams one greeting per line for a JSON array or NDJSON stream of names")
+	@Counted(name = "greet.bulk.counter", monotonic = true, absolute = true)
+	public StreamingOutput bulkGreeting(InputStream names, @Context HttpHeaders headers,
+			@Context SecurityContext context, @HeaderParam(TENANT_HEADER) String tenant) {
+		String user = context.userPrincipal().map(Principal::getName).orElse("Anonymous");
+		boolean ndjson = headers.getMediaType() != null && NDJSON_TYPE.isCompatible(headers.getMediaType());
+		GreetingTemplate template = greetingProvider.getTemplate(headers.getHeaderString(HttpHeaders.ACCEPT_LANGUAGE),
+				tenant);
+
+		return new BulkGreeting(template, user, names, ndjson,
+				metrics.counter("greet.bulk.items"), metrics.histogram("greet.bulk.items.per.request"),
+				metrics.timer("greet.bulk.duration"));
+	}
+
+	/**
+	 * Stream greeting changes as server-sent events, starting with the current
+	 * greeting unless {@code Last-Event-ID} names its version.
+	 */
+	@GET
+	@Path("/events")
+	@Produces(MediaType.SERVER_SENT_EVENTS)
+	@Operation(summary = "Streams greeting changes", description = "Sends a greeting event with the version and message whenever the greeting changes")
+	public void greetingEvents(@Context SseEventSink sink, @Context Sse sse,
+			@HeaderParam(HttpHeaders.LAST_EVENT_ID_HEADER) String lastEventId) {
+
+		greetingBroadcaster.subscribe(sink, sse, greetingProvider::getTemplate, lastEventId);
+	}
+
+	/**
+	 * Set the greeting to use in future messages. With an {@code If-Match}
+	 * header the greeting is only replaced if it is still the one named by the
+	 * ETag, from this or from a greeting response, otherwise 412 is returned.
 	 *
 	 * @param jsonObject JSON containing the new greeting
 	 * @return {@link Response}
@@ -156,7 +302,7 @@ public class GreetResource {
 	@RolesAllowed("admin")
 	@Timed
 	@Counted(name = "greet.message.update.counter", monotonic = true, absolute = true)
-	public Response updateGreeting(JsonObject jsonObject) {
+	public Response updateGreeting(JsonObject jsonObject, @Context HttpHeaders headers) {
 
 		if (!jsonObject.containsKey("greeting")) {
 			JsonObject entity = JSON.createObjectBuilder().add("error", "No greeting provided").build();
@@ -165,8 +311,106 @@ public class GreetResource {
 
 		String newGreeting = jsonObject.getString("greeting");
 
-		greetingProvider.setMessage(newGreeting);
-		return Response.status(Response.Status.NO_CONTENT).build();
+		GreetingTemplate current = greetingProvider.getTemplate();
+		String ifMatch = headers.getHeaderString(HttpHeaders.IF_MATCH);
+		if (ifMatch != null && !current.matches(ifMatch)) {
+			return Response.status(Response.Status.PRECONDITION_FAILED).tag(current.etag()).build();
+		}
+
+		GreetingTemplate updated;
+		if (ifMatch == null) {
+			updated = greetingProvider.setMessage(newGreeting);
+		} else {
+			// the greeting matched above; only replace it if nobody else did since
+			updated = greetingProvider.compareAndSetMessage(current, newGreeting);
+			if (updated == null) {
+				return Response.status(Response.Status.PRECONDITION_FAILED).tag(greetingProvider.getTemplate().etag())
+						.build();
+			}
+		}
+		return Response.status(Response.Status.NO_CONTENT).tag(updated.etag()).build();
+	}
+
+	/**
+	 * List the default greeting and the greetings configured per language,
+	 * shared and per tenant.
+	 *
+	 * @return {@code {"default":..,"locales":{tag:greeting},"tenants":{tenant:{tag:greeting}}}}
+	 */
+	@GET
+	@Path("/greeting/locales")
+	@Produces(MediaType.APPLICATION_JSON)
+	@RolesAllowed("admin")
+	public JsonObject listLocaleGreetings() {
+
+		JsonObjectBuilder tenants = JSON.createObjectBuilder();
+		greetingProvider.getTenantTemplates()
+				.forEach((tenant, greetings) -> tenants.add(tenant, toJson(greetings)));
+
+		return JSON.createObjectBuilder().add("default", greetingProvider.getMessage())
+				.add("locales", toJson(greetingProvider.getLocaleTemplates())).add("tenants", tenants).build();
+	}
+
+	/**
+	 * Set the greeting for a language, shared or, with {@code tenant}, for one
+	 * tenant only.
+	 *
+	 * @param locale     language tag such as {@code fr} or {@code fr-CA}
+	 * @param tenant     tenant the greeting applies to, or none for all
+	 * @param jsonObject JSON containing the new greeting
+	 * @return {@link Response}
+	 */
+	@PUT
+	@Path("/greeting/locales/{locale}")
+	@Consumes(MediaType.APPLICATION_JSON)
+	@Produces(MediaType.APPLICATION_JSON)
+	@RolesAllowed("admin")
+	public Response updateLocaleGreeting(@PathParam("locale") String locale, @QueryParam("tenant") String tenant,
+			JsonObject jsonObject) {
+
+		if (jsonObject == null || !jsonObject.containsKey("greeting")) {
+			return badRequest("No greeting provided");
+		}
+		try {
+			GreetingTemplate updated = greetingProvider.setLocaleMessage(tenant, locale,
+					jsonObject.getString("greeting"));
+			return Response.status(Response.Status.NO_CONTENT).tag(updated.etag()).build();
+		} catch (IllegalArgumentException e) {
+			return badRequest(e.getMessage());
+		}
+	}
+
+	/**
+	 * Remove the greeting for a language, shared or, with {@code tenant}, for
+	 * one tenant only.
+	 *
+	 * @param locale language tag
+	 * @param tenant tenant the greeting applies to, or none for all
+	 * @return {@link Response}
+	 */
+	@DELETE
+	@Path("/greeting/locales/{locale}")
+	@Produces(MediaType.APPLICATION_JSON)
+	@RolesAllowed("admin")
+	public Response deleteLocaleGreeting(@PathParam("locale") String locale, @QueryParam("tenant") String tenant) {
+
+		try {
+			return Response.status(greetingProvider.removeLocaleMessage(tenant, locale) ? Response.Status.NO_CONTENT
+					: Response.Status.NOT_FOUND).build();
+		} catch (IllegalArgumentException e) {
+			return badRequest(e.getMessage());
+		}
+	}
+
+	private static JsonObjectBuilder toJson(Map<String, GreetingTemplate> greetings) {
+		JsonObjectBuilder builder = JSON.createObjectBuilder();
+		new TreeMap<>(greetings).forEach((tag, greeting) -> builder.add(tag, greeting.message()));
+		return builder;
+	}
+
+	private static Response badRequest(String error) {
+		JsonObject entity = JSON.createObjectBuilder().add("error", error).build();
+		return Response.status(Response.Status.BAD_REQUEST).entity(entity).build();
 	}
 
 //	@GET
@@ -180,73 +424,271 @@ public class GreetResource {
 //		return response.readEntity(JsonObject.class);
 //	}
 
+	/**
+	 * Greet a name through the secured outbound target, within the adaptive
+	 * outbound concurrency limit and hedged when it is slow. A call rejected by
+	 * the limit fails fast and, like any other failure, is answered by
+	 * {@link #onFailureOutbound(String, SecurityContext)}.
+	 */
 	@GET
 	@Path("/outbound/{name}")
 	@Fallback(fallbackMethod = "onFailureOutbound")
 	public JsonObject outbound(@PathParam("name") String name, @Context SecurityContext context) {
 
-		Response response = target.path(name).request().property(ClientSecurityFeature.PROPERTY_CONTEXT, context).get();
-		return response.readEntity(JsonObject.class);
+		return outboundCall(name, context, tracer.activeSpan()).toCompletableFuture().join();
+	}
+
+	/**
+	 * Start the outbound call for a name: hedged by {@link OutboundHedger},
+	 * each attempt within the outbound concurrency limit.
+	 *
+	 * @param parent span of the inbound request; hedges and batched calls start
+	 *               on other threads, where it is not active
+	 */
+	private CompletionStage<JsonObject> outboundCall(String name, SecurityContext context, Span parent) {
+
+		return hedger.hedge(() -> limiters.outbound().limit(() -> outboundAttempt(name, context, parent),
+				(greeting, error) -> error != null && isOverload(error)));
+	}
+
+	/**
+	 * One attempt of an outbound call, traced in a {@code greet-outbound} client
+	 * span whose context is sent in the trace headers.
+	 */
+	private CompletionStage<JsonObject> outboundAttempt(String name, SecurityContext context, Span parent) {
+
+		WebTarget greeting = target.path(name);
+		Span span = Tracing.startClientSpan(tracer, "greet-outbound", parent, "jaxrs");
+		Tags.HTTP_METHOD.set(span, HttpMethod.GET);
+		Tags.HTTP_URL.set(span, greeting.getUri().toString());
+		Invocation.Builder builder = greeting.request().property(ClientSecurityFeature.PROPERTY_CONTEXT, context);
+		Tracing.inject(tracer, span, builder::header);
+		CompletionStage<JsonObject> call;
+		try {
+			call = builder.rx().get(JsonObject.class);
+		} catch (RuntimeException e) {
+			Tracing.error(span, e);
+			span.finish();
+			throw e;
+		}
+		return call.whenComplete((value, error) -> {
+			if (error != null) {
+				Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause()
+						: error;
+				if (cause instanceof WebApplicationException) {
+					Tags.HTTP_STATUS.set(span, ((WebApplicationException) cause).getResponse().getStatus());
+				}
+				Tracing.error(span, cause);
+			}
+			span.finish();
+		});
 	}
 
 	public JsonObject onFailureOutbound(String name, SecurityContext context) {
 		return Json.createObjectBuilder().add("Failed", name).build();
 	}
 
+	/**
+	 * Greet a list of names through the secured outbound target in one request.
+	 * Calls run in parallel, at most {@code greet.outbound.batch.concurrency} at
+	 * a time, hedged and within the outbound concurrency limit like
+	 * {@link #outbound(String, SecurityContext)}, each with the caller's
+	 * security context; a failed call is replaced
+	 * by {@link #onFailureOutbound(String, SecurityContext)} for its name only.
+	 *
+	 * @param names JSON array of names
+	 * @return JSON array of greetings, in the order of the names
+	 */
+	@POST
+	@Path("/outbound")
+	@Consumes(MediaType.APPLICATION_JSON)
+	@Produces(MediaType.APPLICATION_JSON)
+	@Timed
+	@Counted(name = "greet.outbound.batch.counter", monotonic = true, absolute = true)
+	public void outboundBatch(JsonArray names, @Context SecurityContext context,
+			@Suspended AsyncResponse asyncResponse) {
+
+		int batchMaxSize = appConfig.getOutboundBatchMaxSize();
+		if (names == null || names.size() > batchMaxSize) {
+			JsonObject entity = JSON.createObjectBuilder()
+					.add("error", "Expected a JSON array of at most " + batchMaxSize + " names").build();
+			asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST).entity(entity).build());
+			return;
+		}
+		List<String> batch = new ArrayList<>(names.size());
+		for (JsonValue name : names) {
+			if (name.getValueType() != JsonValue.ValueType.STRING) {
+				JsonObject entity = JSON.createObjectBuilder().add("error", "Names must be strings").build();
+				asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST).entity(entity).build());
+				return;
+			}
+			batch.add(((JsonString) name).getString());
+		}
+
+		Span parent = tracer.activeSpan();
+		FanOut.<String, JsonObject>map(batch, appConfig.getOutboundBatchConcurrency(),
+				name -> outboundCall(name, context, parent),
+				(name, error) -> onFailureOutbound(name, context)).whenComplete((greetings, error) -> {
+					JsonArrayBuilder entity = JSON.createArrayBuilder();
+					if (greetings != null) {
+						greetings.forEach(entity::add);
+					}
+					resume(asyncResponse, entity.build(), error);
+				});
+	}
+
 	@GET
 	@Path("/properties")
 	@Produces(MediaType.APPLICATION_JSON)
 	@APIResponses(value = {
 			@APIResponse(responseCode = "404", description = "Missing description", content = @Content(mediaType = "text/plain")),
-			@APIResponse(responseCode = "200", description = "JVM system properties of a particular host.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Properties.class))) })
+			@APIResponse(responseCode = "200", description = "JVM system properties of a particular host.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Properties.class))),
+			@APIResponse(responseCode = "304", description = "The properties match the ETag sent in If-None-Match.") })
 	@Operation(summary = "Get JVM system properties for particular host", description = "Retrieves and returns the JVM system properties from the system "
 			+ "service running on the particular host.")
-	public JsonObject getProperties() {
-
-		JsonObjectBuilder builder = Json.createObjectBuilder();
+	public Response getProperties(@Context Request request) {
 
-		System.getProperties().entrySet().stream()
-				.forEach(entry -> builder.add((String) entry.getKey(), (String) entry.getValue()));
+		return conditional(request, greetManager.update(System.getProperties()));
+	}
 
-		greetManager.update(System.getProperties());
+	@GET
+	@Path("/application/properties")
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response listSystemProperties(@Context Request request) {
 
-		return builder.build();
+		return conditional(request, greetManager.getSnapshot());
 	}
 
+	/**
+	 * Changes between the recently recorded system property snapshots, oldest
+	 * first.
+	 *
+	 * @param since only changes to a later snapshot version are returned
+	 * @return JSON array of the added, removed and changed properties per version
+	 */
 	@GET
-	@Path("/application/properties")
+	@Path("/application/properties/history")
 	@Produces(MediaType.APPLICATION_JSON)
-	public Properties listSystemProperties() {
+	public JsonArray getPropertiesHistory(@QueryParam("since") @DefaultValue("0") long since) {
+
+		JsonArrayBuilder history = JSON.createArrayBuilder();
+		greetManager.getHistory(since).forEach(change -> history.add(change.toJson()));
+		return history.build();
+	}
+
+	/**
+	 * Answer 304 when the client already has this snapshot, otherwise send its
+	 * pre-serialized JSON. Both carry the snapshot's ETag.
+	 */
+	private static Response conditional(Request request, PropertiesSnapshot snapshot) {
 
-		return greetManager.getProperties();
+		Response.ResponseBuilder notModified = request.evaluatePreconditions(snapshot.etag());
+		if (notModified != null) {
+			return notModified.build();
+		}
+		return Response.ok(snapshot.json(), MediaType.APPLICATION_JSON_TYPE).tag(snapshot.etag()).build();
 	}
 
+	/**
+	 * List the clusters of the default compartment in every configured region
+	 * ({@code clusters.regions}, or the default region). Regions are queried
+	 * concurrently, each within {@code clusters.region.timeout.ms}; regions that
+	 * fail are reported under {@code errors} next to the clusters of the others.
+	 * The response is 502 only if no region answered.
+	 */
 	@GET
 	@Path("/clusters")
 	@Produces(MediaType.APPLICATION_JSON)
-	public String listClusters() {
-
-		String compartmentId = appConfig.getDEFAULT_COMPARTMENT_ID();
+	public void listClusters(@Suspended AsyncResponse asyncResponse) {
+
+		// one snapshot for the whole call, so a reload cannot mix settings
+		OciSettings settings = appConfig.current();
+		String apiKey = settings.getApiKey();
+		String privateKeyFilename = settings.getPrivatePem();
+
+		// pages are cached by URI, i.e. endpoint, compartment and page; a miss runs
+		// the OCI round trip on the REST client executor, not on a request thread.
+		// Later pages are loaded while the response is written, so the inbound
+		// span is made active again to parent their spans.
+		Span parent = tracer.activeSpan();
+		Map<String, Function<String, CompletionStage<RestResponse>>> regions = new LinkedHashMap<>();
+		settings.getRegionEndpoints().forEach((region, endpoint) -> {
+			String uri = settings.listClustersUri(endpoint);
+			regions.put(region, page -> {
+				String pageUri = page == null ? uri : uri + "&page=" + urlEncode(page);
+				try (Scope scope = Tracing.activate(tracer, parent)) {
+					return responseCache.get(pageUri,
+							() -> restUtil.RestGetPageAsync(apiKey, privateKeyFilename, pageUri));
+				}
+			});
+		});
+
+		// the first pages decide the status, later pages are streamed behind them.
+		// Streaming waits for the client and for those pages, so the listing
+		// completes, and the response is resumed, on the response executor
+		MultiRegionPages.start("clusters", regions, settings.getRegionTimeout(), restUtil,
+				engine.responseExecutor())
+				.whenComplete((listing, error) -> {
+					Object entity = listing == null || listing.anyRegionAvailable() ? listing
+							: Response.status(Response.Status.BAD_GATEWAY).entity(listing).build();
+					resume(asyncResponse, entity, error);
+				});
+	}
 
-		// GET with query parameters
-		String uri = appConfig.getENDPOINT_CONTAINERENGINE_DEFAULT() + appConfig.getRESTAPI_LIST_CLUSTERS()
-				+ "?compartmentId=%s";
-		uri = String.format(uri,
-				// Older ocid formats included ":" which must be escaped
-				compartmentId.replace(":", "%3A"));
+	/**
+	 * Whether an outbound call failed because the target is overloaded or did
+	 * not answer in time.
+	 */
+	private static boolean isOverload(Throwable error) {
 
-		String apiKey = (appConfig.getTENANCY_OCID() + "/" + appConfig.getUSER_OCID() + "/"
-				+ appConfig.getFINGERPRINT());
-		String privateKeyFilename = appConfig.getPRIVATE_PEM();
+		Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+		if (cause instanceof WebApplicationException) {
+			return ConcurrencyLimiter.isOverload(((WebApplicationException) cause).getResponse().getStatus());
+		}
+		return cause instanceof ProcessingException;
+	}
 
-		return RestUtil.RestGet(apiKey, privateKeyFilename, uri);
+	private static String urlEncode(String value) {
+		try {
+			return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
 	}
 
-	private JsonObject createResponse(String who) {
+	/**
+	 * Complete an asynchronous response, answering 503 when the outbound or the
+	 * response executor is saturated.
+	 */
+	private static void resume(AsyncResponse asyncResponse, Object entity, Throwable error) {
+
+		if (error == null) {
+			asyncResponse.resume(entity);
+			return;
+		}
+		Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+		if (cause instanceof RejectedExecutionException) {
+			asyncResponse.resume(Response.status(Response.Status.SERVICE_UNAVAILABLE).build());
+		} else {
+			asyncResponse.resume(cause);
+		}
+	}
 
-		String msg = String.format("%s %s!", greetingProvider.getMessage(), who);
+	/**
+	 * Write {@code {"message":"<greeting> <who>!"}} from a pre-encoded template,
+	 * or answer 304 if the client already has this response. The ETag names the
+	 * greeting and the greeted name, so a cache never revalidates one user's
+	 * greeting for another; the greeted user comes from the credentials and the
+	 * greeting from the language and tenant, hence the {@code Vary} header.
+	 */
+	Response createResponse(Request request, GreetingTemplate template, String... who) {
 
-		return JSON.createObjectBuilder().add("message", msg).build();
+		EntityTag etag = template.etag(who);
+		Response.ResponseBuilder builder = request.evaluatePreconditions(etag);
+		if (builder == null) {
+			builder = Response.ok(template.render(who));
+		}
+		return builder.tag(etag).header(HttpHeaders.VARY, GREETING_VARY).build();
 	}
 
 	/**
@@ -0,0 +1,268 @@
+package io.helidon.examples.conference.mp;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.json.Json;
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.annotation.Gauge;
+
+/**
+ * Pushes greeting changes to server-sent event subscribers.
+ *
+ * <p>
+ * Each change is turned into one {@code greeting} event, with the greeting
+ * version as its id and {@code {"version":..,"message":".."}} as its data, and
+ * offered to every subscriber's bounded queue. A small shared pool writes the
+ * queues to the connections, so a change never waits for a client. When a
+ * queue is full the subscriber is too slow: it is disconnected, or, with
+ * {@code greet.events.drop.slow}, loses its oldest pending event instead. A
+ * heartbeat comment keeps idle connections open through proxies and detects
+ * clients that went away.
+ * </p>
+ *
+ * <p>
+ * Greeting versions only grow, so a subscriber is never offered a version at
+ * or below one it was already offered; changes fired concurrently, or while
+ * the subscriber reads the current greeting, reach it in version order.
+ * </p>
+ */
+@ApplicationScoped
+public class GreetingBroadcaster {
+
+	private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+	private final int queueSize;
+	private final boolean dropSlow;
+	private final ExecutorService writers;
+	private final ScheduledExecutorService heartbeats;
+	private final Counter slowConsumers;
+	private volatile Sse sse;
+
+	/**
+	 * @param queueSize   events kept per subscriber before it counts as slow
+	 * @param dropSlow    drop the oldest event of a slow subscriber instead of
+	 *                    disconnecting it
+	 * @param heartbeat   interval of heartbeat comments, in milliseconds
+	 * @param threads     threads writing events to the connections
+	 * @param registry    registry for the slow consumer counter
+	 */
+	@Inject
+	public GreetingBroadcaster(@ConfigProperty(name = "greet.events.queue.size", defaultValue = "16") int queueSize,
+			@ConfigProperty(name = "greet.events.drop.slow", defaultValue = "false") boolean dropSlow,
+			@ConfigProperty(name = "greet.events.heartbeat.ms", defaultValue = "15000") long heartbeat,
+			@ConfigProperty(name = "greet.events.threads", defaultValue = "2") int threads,
+			MetricRegistry registry) {
+		this.queueSize = queueSize;
+		this.dropSlow = dropSlow;
+		this.writers = Executors.newFixedThreadPool(threads, threadFactory("greeting-events-"));
+		this.heartbeats = Executors.newSingleThreadScheduledExecutor(threadFactory("greeting-heartbeat-"));
+		this.heartbeats.scheduleAtFixedRate(this::heartbeat, heartbeat, heartbeat, TimeUnit.MILLISECONDS);
+		this.slowConsumers = registry.counter("greet.events.slow.consumers");
+	}
+
+	private static ThreadFactory threadFactory(String prefix) {
+		AtomicInteger counter = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/**
+	 * Register a client, first sending it the current greeting unless its
+	 * {@code Last-Event-ID} shows it already has this version.
+	 *
+	 * <p>
+	 * The current greeting is read once the client is registered, so a change
+	 * made meanwhile is either broadcast to it or read here; if the change was
+	 * broadcast first, the greeting read here is older and is not sent.
+	 * </p>
+	 *
+	 * @param sink        the client's event stream
+	 * @param sse         factory for outbound events
+	 * @param current     reads the current greeting
+	 * @param lastEventId id of the last event the client received, or null
+	 */
+	void subscribe(SseEventSink sink, Sse sse, Supplier<GreetingTemplate> current, String lastEventId) {
+
+		this.sse = sse;
+		Subscriber subscriber = new Subscriber(sink);
+		subscribers.add(subscriber);
+		GreetingTemplate greeting = current.get();
+		if (Long.toString(greeting.version()).equals(lastEventId)) {
+			subscriber.received(greeting.version());
+		} else {
+			subscriber.offer(greeting.version(), event(sse, greeting));
+		}
+	}
+
+	/**
+	 * Broadcast a greeting change fired by {@link GreetingProvider}.
+	 */
+	void onGreetingChanged(@Observes GreetingTemplate changed) {
+
+		Sse factory = this.sse;
+		if (factory == null || subscribers.isEmpty()) {
+			return;
+		}
+		OutboundSseEvent event = event(factory, changed);
+		subscribers.forEach(subscriber -> subscriber.offer(changed.version(), event));
+	}
+
+	@Gauge(name = "greet.events.subscribers", unit = MetricUnits.NONE, absolute = true, description = "Clients subscribed to greeting change events")
+	public int getSubscribers() {
+		return subscribers.size();
+	}
+
+	private void heartbeat() {
+
+		Sse factory = this.sse;
+		if (factory == null) {
+			return;
+		}
+		OutboundSseEvent heartbeat = factory.newEventBuilder().comment("heartbeat").build();
+		for (Subscriber subscriber : subscribers) {
+			if (subscriber.sink.isClosed()) {
+				subscriber.close();
+			} else {
+				// a heartbeat is only useful on an idle connection
+				subscriber.offerIfIdle(heartbeat);
+			}
+		}
+	}
+
+	private static OutboundSseEvent event(Sse sse, GreetingTemplate greeting) {
+
+		String data = Json.createObjectBuilder().add("version", greeting.version())
+				.add("message", greeting.message()).build().toString();
+		return sse.newEventBuilder().name("greeting").id(Long.toString(greeting.version())).data(data).build();
+	}
+
+	@PreDestroy
+	void close() {
+		heartbeats.shutdownNow();
+		writers.shutdownNow();
+		subscribers.forEach(Subscriber::close);
+	}
+
+	/**
+	 * A client with its queue of pending events. At most one writer task per
+	 * subscriber runs at a time, so events are sent in order.
+	 */
+	private final class Subscriber {
+
+		private final SseEventSink sink;
+		private final BlockingQueue<OutboundSseEvent> queue = new ArrayBlockingQueue<>(queueSize);
+		private final AtomicBoolean writing = new AtomicBoolean();
+		private long version = -1;
+
+		private Subscriber(SseEventSink sink) {
+			this.sink = sink;
+		}
+
+		/**
+		 * Record that the client already has a greeting version.
+		 */
+		private synchronized void received(long version) {
+			this.version = Math.max(this.version, version);
+		}
+
+		/**
+		 * Queue the event of a greeting version, unless the client was already
+		 * offered this version or a newer one.
+		 */
+		private synchronized void offer(long version, OutboundSseEvent event) {
+
+			if (version <= this.version) {
+				return;
+			}
+			this.version = version;
+			while (!queue.offer(event)) {
+				slowConsumers.inc();
+				if (!dropSlow) {
+					close();
+					return;
+				}
+				queue.poll();
+			}
+			schedule();
+		}
+
+		private void offerIfIdle(OutboundSseEvent event) {
+			if (queue.isEmpty() && queue.offer(event)) {
+				schedule();
+			}
+		}
+
+		private void schedule() {
+			if (writing.compareAndSet(false, true)) {
+				writers.execute(this::sendNext);
+			}
+		}
+
+		/**
+		 * Send the next queued event; the next one is sent once the previous
+		 * send completed.
+		 */
+		private void sendNext() {
+
+			OutboundSseEvent event = queue.poll();
+			if (event == null) {
+				writing.set(false);
+				// an event may have been queued after poll() but before the flag was cleared
+				if (!queue.isEmpty()) {
+					schedule();
+				}
+				return;
+			}
+			if (sink.isClosed()) {
+				close();
+				return;
+			}
+			try {
+				sink.send(event).whenComplete((result, error) -> {
+					if (error != null) {
+						close();
+					} else {
+						sendNext();
+					}
+				});
+			} catch (RuntimeException e) {
+				close();
+			}
+		}
+
+		private void close() {
+			if (subscribers.remove(this)) {
+				queue.clear();
+				try {
+					sink.close();
+				} catch (RuntimeException e) {
+					// the connection is gone already
+				}
+			}
+		}
+	}
+}
@@ -15,35 +15,227 @@
  */
 package io.helidon.examples.conference.mp;
 
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Event;
 import javax.inject.Inject;
 
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 /**
  * Provider for greeting message.
+ *
+ * The greeting is kept as a {@link GreetingTemplate}, rebuilt only when the
+ * message changes, so greeting responses are written from pre-encoded bytes.
+ * Every change of the default greeting fires the new template as a CDI event.
+ *
+ * Greetings can be overridden per language, and per language for a tenant.
+ * Lookups read immutable {@link LocaleGreetings} without locking; updates
+ * replace them. At most {@code maxLocales} languages are kept per set, and
+ * tenants beyond {@code maxTenants} are evicted least recently used first.
+ * Recency is counted in tenant updates rather than in time, so a lookup only
+ * writes the access stamp of its tenant on the first access after an update.
+ * All greetings share one version sequence, so a version names exactly one
+ * greeting.
  */
 @ApplicationScoped
 public class GreetingProvider {
-    private final AtomicReference<String> message = new AtomicReference<>();
+    private final AtomicReference<GreetingTemplate> template = new AtomicReference<>();
+    private final AtomicReference<LocaleGreetings> locales = new AtomicReference<>(LocaleGreetings.EMPTY);
+    private final ConcurrentMap<String, TenantGreetings> tenants = new ConcurrentHashMap<>();
+    private final AtomicLong versions;
+    /**
+     * Logical time of tenant accesses, advanced after every tenant update.
+     */
+    private final AtomicLong tenantClock = new AtomicLong();
+    private final int maxLocales;
+    private final int maxTenants;
+
+    @Inject
+    private Event<GreetingTemplate> changed;
 
     /**
      * Create a new greeting provider, reading the message from configuration.
      *
-     * @param message greeting to use
+     * @param message    greeting to use
+     * @param maxLocales maximum number of languages per greeting set
+     * @param maxTenants maximum number of tenants with their own greetings
      */
     @Inject
-    public GreetingProvider(@ConfigProperty(name = "app.greeting") String message) {
-        this.message.set(message);
+    public GreetingProvider(@ConfigProperty(name = "app.greeting") String message,
+            @ConfigProperty(name = "greet.locales.max.entries", defaultValue = "100") int maxLocales,
+            @ConfigProperty(name = "greet.tenants.max.entries", defaultValue = "1000") int maxTenants) {
+        // versions only order greeting events, ETags hash the content instead;
+        // they start at the boot time so event ids keep increasing across restarts
+        this.versions = new AtomicLong(System.currentTimeMillis());
+        this.maxLocales = maxLocales;
+        this.maxTenants = maxTenants;
+        this.template.set(new GreetingTemplate(versions.get(), message));
     }
 
     String getMessage() {
-        return message.get();
+        return template.get().message();
+    }
+
+    /**
+     * Replace the greeting unconditionally.
+     *
+     * @param message the new greeting
+     * @return the template of the new greeting
+     */
+    GreetingTemplate setMessage(String message) {
+        GreetingTemplate updated = template.updateAndGet(current -> new GreetingTemplate(versions.incrementAndGet(), message));
+        changed.fire(updated);
+        return updated;
+    }
+
+    /**
+     * Replace the greeting only if it is still {@code expected}.
+     *
+     * @param expected the template the caller based its update on
+     * @param message  the new greeting
+     * @return the template of the new greeting, or null if the greeting changed
+     *         since {@code expected} was read
+     */
+    GreetingTemplate compareAndSetMessage(GreetingTemplate expected, String message) {
+        GreetingTemplate updated = new GreetingTemplate(versions.incrementAndGet(), message);
+        if (!template.compareAndSet(expected, updated)) {
+            return null;
+        }
+        changed.fire(updated);
+        return updated;
+    }
+
+    /**
+     * @return the template of the current greeting
+     */
+    GreetingTemplate getTemplate() {
+        return template.get();
+    }
+
+    /**
+     * Find the greeting for a request: the tenant's greeting for the best
+     * matching language, else the shared greeting for it, else the default.
+     *
+     * @param acceptLanguage the {@code Accept-Language} header, or null
+     * @param tenant         the tenant, or null
+     * @return the template to greet with
+     */
+    GreetingTemplate getTemplate(String acceptLanguage, String tenant) {
+        if (acceptLanguage == null) {
+            return template.get();
+        }
+        if (tenant != null) {
+            TenantGreetings tenantGreetings = tenants.get(tenant);
+            if (tenantGreetings != null) {
+                long now = tenantClock.get();
+                if (tenantGreetings.lastAccess != now) {
+                    tenantGreetings.lastAccess = now;
+                }
+                GreetingTemplate found = tenantGreetings.greetings.resolve(acceptLanguage);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+        GreetingTemplate found = locales.get().resolve(acceptLanguage);
+        return found != null ? found : template.get();
+    }
+
+    /**
+     * Set the greeting for a language, shared or for one tenant.
+     *
+     * @param tenant      the tenant, or null for the shared greetings
+     * @param languageTag the language
+     * @param message     the greeting
+     * @return the template of the new greeting
+     * @throws IllegalArgumentException if the tag is invalid or the set is full
+     */
+    GreetingTemplate setLocaleMessage(String tenant, String languageTag, String message) {
+        String tag = LocaleGreetings.normalize(languageTag);
+        GreetingTemplate updated = new GreetingTemplate(versions.incrementAndGet(), message);
+        if (tenant == null) {
+            locales.updateAndGet(current -> add(current, tag, updated));
+        } else {
+            long now = tenantClock.getAndIncrement();
+            tenants.compute(tenant, (key, current) -> new TenantGreetings(
+                    add(current == null ? LocaleGreetings.EMPTY : current.greetings, tag, updated), now));
+            evictTenantsIfFull();
+        }
+        return updated;
+    }
+
+    /**
+     * Remove the greeting for a language, shared or for one tenant.
+     *
+     * @return true if there was one
+     */
+    boolean removeLocaleMessage(String tenant, String languageTag) {
+        String tag = LocaleGreetings.normalize(languageTag);
+        if (tenant == null) {
+            LocaleGreetings before = locales.getAndUpdate(current -> current.without(tag));
+            return before.greetings().containsKey(tag);
+        }
+        boolean[] removed = new boolean[1];
+        tenants.computeIfPresent(tenant, (key, current) -> {
+            LocaleGreetings remaining = current.greetings.without(tag);
+            removed[0] = remaining != current.greetings;
+            return remaining.isEmpty() ? null : new TenantGreetings(remaining, current.lastAccess);
+        });
+        return removed[0];
+    }
+
+    /**
+     * @return the shared greetings by language
+     */
+    Map<String, GreetingTemplate> getLocaleTemplates() {
+        return locales.get().greetings();
+    }
+
+    /**
+     * @return the greetings by language of every tenant
+     */
+    Map<String, Map<String, GreetingTemplate>> getTenantTemplates() {
+        Map<String, Map<String, GreetingTemplate>> result = new TreeMap<>();
+        tenants.forEach((tenant, tenantGreetings) -> result.put(tenant, tenantGreetings.greetings.greetings()));
+        return result;
+    }
+
+    private LocaleGreetings add(LocaleGreetings current, String tag, GreetingTemplate greeting) {
+        if (current.size() >= maxLocales && !current.greetings().containsKey(tag)) {
+            throw new IllegalArgumentException("At most " + maxLocales + " languages can be configured");
+        }
+        return current.with(tag, greeting);
     }
 
-    void setMessage(String message) {
-        this.message.set(message);
+    private void evictTenantsIfFull() {
+        while (tenants.size() > maxTenants) {
+            Map.Entry<String, TenantGreetings> eldest = null;
+            for (Map.Entry<String, TenantGreetings> candidate : tenants.entrySet()) {
+                if (eldest == null || candidate.getValue().lastAccess < eldest.getValue().lastAccess) {
+                    eldest = candidate;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            tenants.remove(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    private static final class TenantGreetings {
+        private final LocaleGreetings greetings;
+        private volatile long lastAccess;
+
+        private TenantGreetings(LocaleGreetings greetings, long lastAccess) {
+            this.greetings = greetings;
+            this.lastAccess = lastAccess;
+        }
     }
 }
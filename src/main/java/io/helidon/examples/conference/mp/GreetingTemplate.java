@@ -0,0 +1,133 @@
+package io.helidon.examples.conference.mp;
+
+import java.nio.charset.StandardCharsets;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.StreamingOutput;
+
+import io.helidon.examples.conference.mp.common.util.JsonBuffer;
+
+/**
+ * Pre-encoded form of the greeting response {@code {"message":"<greeting>
+ * <who>!"}}.
+ *
+ * <p>
+ * The UTF-8 bytes before and after the greeted name are built once per
+ * greeting, so a response only escapes the name into a reused buffer between
+ * them. Templates are immutable and carry the version of the greeting they
+ * were built from.
+ * </p>
+ *
+ * <p>
+ * ETags are derived from the content rather than from the version, so every
+ * instance gives the same greeting the same tag. A greeting response adds a
+ * hash of the greeted name to the tag of its greeting, as the body differs
+ * per name.
+ * </p>
+ */
+final class GreetingTemplate {
+
+	private static final byte[] SUFFIX = "!\"}".getBytes(StandardCharsets.UTF_8);
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final long version;
+	private final String message;
+	private final byte[] prefix;
+	private final String tag;
+	private final EntityTag etag;
+
+	GreetingTemplate(long version, String message) {
+		this.version = version;
+		this.message = message;
+		this.tag = Long.toHexString(hash(FNV_OFFSET, message));
+		this.etag = new EntityTag(tag);
+		this.prefix = new JsonBuffer().append("{\"message\":\"".getBytes(StandardCharsets.UTF_8))
+				.appendEscaped(message).append(' ').toByteArray();
+	}
+
+	long version() {
+		return version;
+	}
+
+	String message() {
+		return message;
+	}
+
+	/**
+	 * @return strong ETag of the greeting itself, for conditional updates
+	 */
+	EntityTag etag() {
+		return etag;
+	}
+
+	/**
+	 * @param who the parts of the greeted name, as passed to {@link #render}
+	 * @return strong ETag of the greeting response for this name
+	 */
+	EntityTag etag(String... who) {
+		long hash = FNV_OFFSET;
+		for (String part : who) {
+			hash = hash(hash, part);
+		}
+		return new EntityTag(tag + '-' + Long.toHexString(hash));
+	}
+
+	/**
+	 * Compare an {@code If-Match} header with this greeting. A tag matches if
+	 * it is the greeting's own or that of a response greeting someone with it.
+	 *
+	 * @param ifMatch the header value: {@code *} or a list of ETags
+	 * @return true if the header names this greeting
+	 */
+	boolean matches(String ifMatch) {
+		for (String value : ifMatch.split(",")) {
+			value = value.trim();
+			if ("*".equals(value)) {
+				return true;
+			}
+			if (value.isEmpty() || value.startsWith("W/")) {
+				// If-Match only compares strong tags
+				continue;
+			}
+			EntityTag other = EntityTag.valueOf(value);
+			if (other.getValue().equals(tag) || other.getValue().startsWith(tag + '-')) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Continue a 64-bit FNV-1a hash over the characters of a string.
+	 */
+	private static long hash(long hash, String value) {
+		for (int i = 0; i < value.length(); i++) {
+			hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+		}
+		return hash;
+	}
+
+	/**
+	 * @param who the parts of the greeted name, written one after the other
+	 * @return the greeting response entity
+	 */
+	StreamingOutput render(String... who) {
+		return output -> appendTo(JsonBuffer.forThread(), who).writeTo(output);
+	}
+
+	/**
+	 * Append the greeting JSON object to a buffer.
+	 *
+	 * @param who the parts of the greeted name, written one after the other
+	 * @return the buffer
+	 */
+	JsonBuffer appendTo(JsonBuffer buffer, String... who) {
+		buffer.append(prefix);
+		for (String part : who) {
+			buffer.appendEscaped(part);
+		}
+		return buffer.append(SUFFIX);
+	}
+}
@@ -0,0 +1,147 @@
+package io.helidon.examples.conference.mp;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Priority;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonString;
+import javax.json.JsonStructure;
+import javax.json.JsonValue;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+import io.helidon.examples.conference.mp.common.util.JsonBuffer;
+
+/**
+ * Writes the JSON-P objects and arrays returned by {@link GreetResource}
+ * without going through the generic JSON-P provider.
+ *
+ * <p>
+ * Jersey picks a writer by the distance of its declared type to the entity
+ * type before its priority. This writer declares {@link JsonStructure}, which
+ * is closer to {@code JsonObject} and {@code JsonArray} than the
+ * {@link JsonValue} of the JSON-P provider.
+ * </p>
+ *
+ * <p>
+ * The response is assembled in the calling thread's reused {@link JsonBuffer}
+ * and written to the entity stream in one call. Object keys repeat across
+ * responses, so their escaped, quoted form {@code "key":} is cached. The output
+ * is the same as the compact output of the generic providers.
+ * </p>
+ */
+@Provider
+@Produces(MediaType.APPLICATION_JSON)
+@Priority(Priorities.USER)
+public class JsonResponseWriter implements MessageBodyWriter<JsonStructure> {
+
+	/**
+	 * Keys are no longer cached once this many are known, so arbitrary keys
+	 * cannot grow the cache without bound.
+	 */
+	private static final int MAX_CACHED_KEYS = 4096;
+
+	private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+
+	private final ConcurrentMap<String, byte[]> keys = new ConcurrentHashMap<>();
+
+	@Override
+	public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+		return JsonStructure.class.isAssignableFrom(type) && MediaType.APPLICATION_JSON_TYPE.isCompatible(mediaType);
+	}
+
+	@Override
+	public long getSize(JsonStructure entity, Class<?> type, Type genericType, Annotation[] annotations,
+			MediaType mediaType) {
+		return -1;
+	}
+
+	@Override
+	public void writeTo(JsonStructure entity, Class<?> type, Type genericType, Annotation[] annotations,
+			MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream)
+			throws IOException {
+
+		JsonBuffer buffer = JsonBuffer.forThread();
+		writeValue(buffer, entity);
+		buffer.writeTo(entityStream);
+	}
+
+	private void writeValue(JsonBuffer buffer, JsonValue value) {
+
+		switch (value.getValueType()) {
+		case OBJECT:
+			buffer.append('{');
+			boolean first = true;
+			for (Map.Entry<String, JsonValue> entry : ((JsonObject) value).entrySet()) {
+				if (!first) {
+					buffer.append(',');
+				}
+				first = false;
+				buffer.append(key(entry.getKey()));
+				writeValue(buffer, entry.getValue());
+			}
+			buffer.append('}');
+			break;
+		case ARRAY:
+			buffer.append('[');
+			JsonArray array = (JsonArray) value;
+			for (int i = 0; i < array.size(); i++) {
+				if (i > 0) {
+					buffer.append(',');
+				}
+				writeValue(buffer, array.get(i));
+			}
+			buffer.append(']');
+			break;
+		case STRING:
+			writeString(buffer, ((JsonString) value).getString());
+			break;
+		case NUMBER:
+			buffer.appendEscaped(value.toString());
+			break;
+		case TRUE:
+			buffer.append(TRUE);
+			break;
+		case FALSE:
+			buffer.append(FALSE);
+			break;
+		default:
+			buffer.append(NULL);
+		}
+	}
+
+	private static void writeString(JsonBuffer buffer, String value) {
+		buffer.append('"').appendEscaped(value).append('"');
+	}
+
+	/**
+	 * @return the UTF-8 bytes of {@code "key":}
+	 */
+	private byte[] key(String key) {
+
+		byte[] encoded = keys.get(key);
+		if (encoded == null) {
+			JsonBuffer quoted = new JsonBuffer();
+			quoted.append('"').appendEscaped(key).append('"').append(':');
+			encoded = quoted.toByteArray();
+			if (keys.size() < MAX_CACHED_KEYS) {
+				keys.putIfAbsent(key, encoded);
+			}
+		}
+		return encoded;
+	}
+}
@@ -0,0 +1,169 @@
+package io.helidon.examples.conference.mp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable set of greetings keyed by language tag.
+ *
+ * <p>
+ * Tags are stored in lower case, e.g. {@code fr} or {@code fr-ca}. An
+ * {@code Accept-Language} header is resolved to the greeting of the best
+ * matching range, trying each range as given and then its primary language.
+ * Resolutions are cached per header value, so a repeated header is resolved
+ * with a single map lookup and no allocation. Updates create a new set, which
+ * starts with an empty cache.
+ * </p>
+ */
+final class LocaleGreetings {
+
+	static final LocaleGreetings EMPTY = new LocaleGreetings(Collections.emptyMap());
+
+	private static final Pattern LANGUAGE_TAG = Pattern.compile("[a-z]{1,8}(-[a-z0-9]{1,8})*");
+
+	/**
+	 * Distinct header values cached per set; beyond it headers are resolved
+	 * without caching.
+	 */
+	private static final int MAX_RESOLVED = 256;
+
+	/**
+	 * Cached for headers without a match, as the cache cannot hold null.
+	 */
+	private static final GreetingTemplate NO_MATCH = new GreetingTemplate(0, "");
+
+	private final Map<String, GreetingTemplate> greetings;
+	private final ConcurrentMap<String, GreetingTemplate> resolved = new ConcurrentHashMap<>();
+
+	private LocaleGreetings(Map<String, GreetingTemplate> greetings) {
+		this.greetings = greetings;
+	}
+
+	/**
+	 * @return the lower case form of a language tag, accepting {@code _} as
+	 *         separator
+	 * @throws IllegalArgumentException if it is not a language tag
+	 */
+	static String normalize(String languageTag) {
+		String tag = languageTag.trim().replace('_', '-').toLowerCase(Locale.ROOT);
+		if (!LANGUAGE_TAG.matcher(tag).matches()) {
+			throw new IllegalArgumentException("Invalid language tag: " + languageTag);
+		}
+		return tag;
+	}
+
+	int size() {
+		return greetings.size();
+	}
+
+	boolean isEmpty() {
+		return greetings.isEmpty();
+	}
+
+	/**
+	 * @return a copy of this set with the greeting for {@code tag} replaced
+	 */
+	LocaleGreetings with(String tag, GreetingTemplate greeting) {
+		Map<String, GreetingTemplate> copy = new HashMap<>(greetings);
+		copy.put(tag, greeting);
+		return new LocaleGreetings(copy);
+	}
+
+	/**
+	 * @return a copy of this set without {@code tag}, or this set if it has no
+	 *         greeting for it
+	 */
+	LocaleGreetings without(String tag) {
+		if (!greetings.containsKey(tag)) {
+			return this;
+		}
+		Map<String, GreetingTemplate> copy = new HashMap<>(greetings);
+		copy.remove(tag);
+		return new LocaleGreetings(copy);
+	}
+
+	/**
+	 * @return the greetings by language tag
+	 */
+	Map<String, GreetingTemplate> greetings() {
+		return Collections.unmodifiableMap(greetings);
+	}
+
+	/**
+	 * @param acceptLanguage the {@code Accept-Language} header, or null
+	 * @return the greeting for the best matching language, or null if none
+	 *         matches
+	 */
+	GreetingTemplate resolve(String acceptLanguage) {
+
+		if (acceptLanguage == null || greetings.isEmpty()) {
+			return null;
+		}
+		GreetingTemplate template = resolved.get(acceptLanguage);
+		if (template == null) {
+			template = match(acceptLanguage);
+			if (resolved.size() < MAX_RESOLVED) {
+				resolved.putIfAbsent(acceptLanguage, template);
+			}
+		}
+		return template == NO_MATCH ? null : template;
+	}
+
+	private GreetingTemplate match(String acceptLanguage) {
+
+		for (String range : ranges(acceptLanguage)) {
+			GreetingTemplate template = greetings.get(range);
+			int dash = range.indexOf('-');
+			if (template == null && dash > 0) {
+				template = greetings.get(range.substring(0, dash));
+			}
+			if (template != null) {
+				return template;
+			}
+		}
+		return NO_MATCH;
+	}
+
+	/**
+	 * @return the language ranges of the header, highest quality first; ranges
+	 *         with quality 0 and the {@code *} range are left out
+	 */
+	private static List<String> ranges(String acceptLanguage) {
+
+		List<String> ranges = new ArrayList<>();
+		List<Double> qualities = new ArrayList<>();
+		for (String part : acceptLanguage.split(",")) {
+			String[] fields = part.split(";");
+			String range = fields[0].trim().toLowerCase(Locale.ROOT);
+			double quality = 1;
+			for (int i = 1; i < fields.length; i++) {
+				String field = fields[i].trim();
+				if (field.startsWith("q=")) {
+					try {
+						quality = Double.parseDouble(field.substring(2));
+					} catch (NumberFormatException e) {
+						quality = 0;
+					}
+				}
+			}
+			if (range.isEmpty() || "*".equals(range) || quality <= 0) {
+				continue;
+			}
+			// stable insertion keeps the header order for equal qualities
+			int index = 0;
+			while (index < qualities.size() && qualities.get(index) >= quality) {
+				index++;
+			}
+			ranges.add(index, range);
+			qualities.add(index, quality);
+		}
+		return ranges;
+	}
+}
@@ -0,0 +1,234 @@
+package io.helidon.examples.conference.mp;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.annotation.Gauge;
+
+import io.helidon.examples.conference.mp.common.util.ConcurrencyLimiter;
+import io.helidon.examples.conference.mp.common.util.RestClientEngine;
+import io.helidon.examples.conference.mp.common.util.TokenBucket;
+
+/**
+ * Hedges the outbound greet calls to cut their tail latency.
+ *
+ * <p>
+ * When a call has not answered within the hedge delay, a second, identical
+ * call is sent; the first one to succeed wins and the other is cancelled. A
+ * call that fails only fails the request once no other one is pending. The
+ * delay is the {@code greet.outbound.hedge.percentile} of the latencies of the
+ * recent calls, but at least {@code greet.outbound.hedge.min.delay.ms}; until
+ * enough calls completed it is {@code greet.outbound.hedge.initial.delay.ms}.
+ * Hedges are paid from a {@link TokenBucket}, so at most about
+ * {@code greet.outbound.hedge.max.rate} of the calls are hedged and a slow
+ * downstream service never sees its load doubled.
+ * </p>
+ *
+ * <p>
+ * Cancelling the losing call completes its stage. A loser still queued by a
+ * {@link ConcurrencyLimiter} leaves the queue and is never sent; one already
+ * sent is not aborted by the JAX-RS client and still finishes in the
+ * background.
+ * </p>
+ */
+@ApplicationScoped
+public class OutboundHedger {
+
+	/**
+	 * Number of recent latencies the percentile is computed from.
+	 */
+	private static final int SAMPLES = 512;
+
+	/**
+	 * The delay is recomputed after this many new samples.
+	 */
+	private static final int RECOMPUTE_EVERY = 64;
+
+	private final boolean enabled;
+	private final double percentile;
+	private final long minDelay;
+	private final RestClientEngine engine;
+	private final TokenBucket budget;
+	private final Counter hedges;
+	private final Counter hedgesWon;
+
+	private final AtomicLongArray latencies = new AtomicLongArray(SAMPLES);
+	private final AtomicLong sampled = new AtomicLong();
+	private volatile long delay;
+
+	/**
+	 * @param enabled      whether calls are hedged at all
+	 * @param percentile   percentile of the recent latencies used as the hedge
+	 *                     delay
+	 * @param initialDelay hedge delay until enough calls completed, in
+	 *                     milliseconds
+	 * @param minDelay     lower bound of the hedge delay, in milliseconds
+	 * @param maxRate      fraction of the calls that may be hedged
+	 * @param engine       engine whose timer starts the hedges
+	 * @param registry     registry for the hedge counters
+	 */
+	@Inject
+	public OutboundHedger(@ConfigProperty(name = "greet.outbound.hedge.enabled", defaultValue = "false") boolean enabled,
+			@ConfigProperty(name = "greet.outbound.hedge.percentile", defaultValue = "95") double percentile,
+			@ConfigProperty(name = "greet.outbound.hedge.initial.delay.ms", defaultValue = "100") long initialDelay,
+			@ConfigProperty(name = "greet.outbound.hedge.min.delay.ms", defaultValue = "5") long minDelay,
+			@ConfigProperty(name = "greet.outbound.hedge.max.rate", defaultValue = "0.1") double maxRate,
+			RestClientEngine engine, MetricRegistry registry) {
+		this.enabled = enabled;
+		this.percentile = percentile;
+		this.minDelay = TimeUnit.MILLISECONDS.toNanos(minDelay);
+		this.delay = Math.max(this.minDelay, TimeUnit.MILLISECONDS.toNanos(initialDelay));
+		this.engine = engine;
+		this.budget = new TokenBucket(maxRate, 10);
+		this.hedges = registry.counter("greet.outbound.hedges");
+		this.hedgesWon = registry.counter("greet.outbound.hedges.won");
+	}
+
+	/**
+	 * Run a call, hedging it if it is slow.
+	 *
+	 * @param call starts one attempt of the call; it is invoked a second time
+	 *             for the hedge
+	 * @return the result of the first attempt that succeeded, or the last
+	 *         failure
+	 */
+	public <T> CompletionStage<T> hedge(Supplier<? extends CompletionStage<T>> call) {
+
+		if (!enabled) {
+			return call.get();
+		}
+		budget.deposit();
+		Hedge<T> hedge = new Hedge<>(call);
+		hedge.first = hedge.start(false);
+		if (!hedge.result.isDone()) {
+			ScheduledFuture<?> timer = engine.scheduler().schedule(hedge::startHedge, delay,
+					TimeUnit.NANOSECONDS);
+			hedge.result.whenComplete((value, error) -> timer.cancel(false));
+		}
+		return hedge.result;
+	}
+
+	@Gauge(name = "greet.outbound.hedge.delay", unit = MetricUnits.MILLISECONDS, absolute = true, description = "Time after which an outbound greet call is hedged")
+	public long getDelay() {
+		return TimeUnit.NANOSECONDS.toMillis(delay);
+	}
+
+	private void record(long latency) {
+
+		long count = sampled.getAndIncrement();
+		latencies.set((int) (count % SAMPLES), latency);
+		if ((count + 1) % RECOMPUTE_EVERY == 0) {
+			int size = (int) Math.min(count + 1, SAMPLES);
+			long[] sorted = new long[size];
+			for (int i = 0; i < size; i++) {
+				sorted[i] = latencies.get(i);
+			}
+			Arrays.sort(sorted);
+			int index = (int) Math.min(size - 1, Math.ceil(size * percentile / 100) - 1);
+			delay = Math.max(minDelay, sorted[Math.max(0, index)]);
+		}
+	}
+
+	/**
+	 * The attempts of one call.
+	 */
+	private final class Hedge<T> {
+
+		private final CompletableFuture<T> result = new CompletableFuture<>();
+		private final Supplier<? extends CompletionStage<T>> call;
+		private final AtomicInteger pending = new AtomicInteger(1);
+		private volatile CompletableFuture<T> first;
+		private volatile CompletableFuture<T> second;
+		private volatile Throwable failure;
+
+		private Hedge(Supplier<? extends CompletionStage<T>> call) {
+			this.call = call;
+		}
+
+		private void startHedge() {
+
+			// reserve the hedge, unless every attempt is already over
+			if (result.isDone() || pending.getAndUpdate(count -> count == 0 ? 0 : count + 1) == 0) {
+				return;
+			}
+			if (!budget.tryTake() || result.isDone()) {
+				release();
+				return;
+			}
+			hedges.inc();
+			second = start(true);
+			// a success settled before second was assigned could not cancel it
+			if (result.isDone()) {
+				cancel(second);
+			}
+		}
+
+		private CompletableFuture<T> start(boolean isHedge) {
+
+			long started = System.nanoTime();
+			CompletableFuture<T> attempt;
+			try {
+				attempt = call.get().toCompletableFuture();
+			} catch (RuntimeException e) {
+				attempt = new CompletableFuture<>();
+				attempt.completeExceptionally(e);
+			}
+			attempt.whenComplete((value, error) -> {
+				if (error == null) {
+					record(System.nanoTime() - started);
+				}
+				settle(value, error, isHedge);
+			});
+			return attempt;
+		}
+
+		/**
+		 * Complete the result with the first success, or with the last failure
+		 * once no attempt is pending.
+		 */
+		private void settle(T value, Throwable error, boolean isHedge) {
+
+			if (error == null) {
+				if (result.complete(value)) {
+					if (isHedge) {
+						hedgesWon.inc();
+					}
+					cancel(isHedge ? first : second);
+				}
+			} else {
+				failure = error;
+			}
+			release();
+		}
+
+		private void release() {
+			// the failure is read after the count, so the last attempt sees it
+			if (pending.decrementAndGet() == 0) {
+				Throwable error = failure;
+				if (error != null) {
+					result.completeExceptionally(error);
+				}
+			}
+		}
+
+		private void cancel(CompletableFuture<T> attempt) {
+			if (attempt != null) {
+				attempt.cancel(true);
+			}
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package io.helidon.examples.conference.mp;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+
+/**
+ * Immutable difference between two consecutive {@link PropertiesSnapshot}s.
+ */
+public final class PropertiesChange {
+
+	private final long version;
+	private final long previousVersion;
+	private final long time;
+	private final Map<String, String> added;
+	private final Map<String, String> removed;
+	private final Map<String, String[]> changed;
+
+	private PropertiesChange(long version, long previousVersion, long time, Map<String, String> added,
+			Map<String, String> removed, Map<String, String[]> changed) {
+		this.version = version;
+		this.previousVersion = previousVersion;
+		this.time = time;
+		this.added = Collections.unmodifiableMap(added);
+		this.removed = Collections.unmodifiableMap(removed);
+		this.changed = Collections.unmodifiableMap(changed);
+	}
+
+	/**
+	 * Compute the change from {@code previous} to {@code current} in a single
+	 * pass over their sorted entries.
+	 */
+	static PropertiesChange between(PropertiesSnapshot previous, PropertiesSnapshot current) {
+
+		Map<String, String> added = new LinkedHashMap<>();
+		Map<String, String> removed = new LinkedHashMap<>();
+		Map<String, String[]> changed = new LinkedHashMap<>();
+
+		Iterator<Map.Entry<String, String>> before = previous.entries().entrySet().iterator();
+		Iterator<Map.Entry<String, String>> after = current.entries().entrySet().iterator();
+		Map.Entry<String, String> left = next(before);
+		Map.Entry<String, String> right = next(after);
+		while (left != null || right != null) {
+			int order = left == null ? 1 : right == null ? -1 : left.getKey().compareTo(right.getKey());
+			if (order < 0) {
+				removed.put(left.getKey(), left.getValue());
+				left = next(before);
+			} else if (order > 0) {
+				added.put(right.getKey(), right.getValue());
+				right = next(after);
+			} else {
+				if (!left.getValue().equals(right.getValue())) {
+					changed.put(left.getKey(), new String[] { left.getValue(), right.getValue() });
+				}
+				left = next(before);
+				right = next(after);
+			}
+		}
+		return new PropertiesChange(current.version(), previous.version(), System.currentTimeMillis(), added,
+				removed, changed);
+	}
+
+	private static Map.Entry<String, String> next(Iterator<Map.Entry<String, String>> entries) {
+		return entries.hasNext() ? entries.next() : null;
+	}
+
+	public long version() {
+		return version;
+	}
+
+	public long previousVersion() {
+		return previousVersion;
+	}
+
+	/**
+	 * @return when the change was recorded, in epoch milliseconds
+	 */
+	public long time() {
+		return time;
+	}
+
+	/**
+	 * @return {@code {"version":..,"previousVersion":..,"time":..,"added":{..},
+	 *         "removed":{..},"changed":{"key":{"old":..,"new":..}}}}
+	 */
+	public JsonObject toJson() {
+
+		JsonObjectBuilder changes = Json.createObjectBuilder();
+		changed.forEach((key, values) -> changes.add(key,
+				Json.createObjectBuilder().add("old", values[0]).add("new", values[1])));
+
+		return Json.createObjectBuilder().add("version", version).add("previousVersion", previousVersion)
+				.add("time", time).add("added", toJson(added)).add("removed", toJson(removed))
+				.add("changed", changes).build();
+	}
+
+	private static JsonObjectBuilder toJson(Map<String, String> entries) {
+		JsonObjectBuilder builder = Json.createObjectBuilder();
+		entries.forEach(builder::add);
+		return builder;
+	}
+}
@@ -0,0 +1,137 @@
+package io.helidon.examples.conference.mp;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import javax.ws.rs.core.EntityTag;
+
+import io.helidon.examples.conference.mp.common.util.JsonBuffer;
+
+/**
+ * Immutable, versioned copy of a {@link Properties} object, with its JSON form
+ * and a strong ETag computed once.
+ *
+ * <p>
+ * Entries are sorted by key, so equal content always serializes to the same
+ * bytes and the same ETag. {@link #sameContent(Properties)} compares the
+ * entries without copying them and tells whether a snapshot must be rebuilt.
+ * </p>
+ */
+public final class PropertiesSnapshot {
+
+	private final long version;
+	private final SortedMap<String, String> entries;
+	private final byte[] json;
+	private final EntityTag etag;
+
+	private PropertiesSnapshot(long version, SortedMap<String, String> entries) {
+		this.version = version;
+		this.entries = Collections.unmodifiableSortedMap(entries);
+		this.json = serialize(entries);
+		this.etag = new EntityTag(sha256(json));
+	}
+
+	/**
+	 * @return an empty snapshot with version 0
+	 */
+	static PropertiesSnapshot empty() {
+		return new PropertiesSnapshot(0, new TreeMap<>());
+	}
+
+	/**
+	 * Return this snapshot if it has the same content as {@code properties},
+	 * otherwise a new snapshot of {@code properties} with the next version.
+	 */
+	PropertiesSnapshot refresh(Properties properties) {
+
+		// Properties is a Hashtable: holding its lock gives a consistent view
+		synchronized (properties) {
+			if (sameContent(properties)) {
+				return this;
+			}
+			SortedMap<String, String> copy = new TreeMap<>();
+			for (Map.Entry<Object, Object> entry : properties.entrySet()) {
+				copy.put(String.valueOf(entry.getKey()), String.valueOf(entry.getValue()));
+			}
+			return new PropertiesSnapshot(version + 1, copy);
+		}
+	}
+
+	public long version() {
+		return version;
+	}
+
+	/**
+	 * @return the entries, sorted by key
+	 */
+	public SortedMap<String, String> entries() {
+		return entries;
+	}
+
+	/**
+	 * @return the UTF-8 JSON object of the entries; must not be modified
+	 */
+	public byte[] json() {
+		return json;
+	}
+
+	public EntityTag etag() {
+		return etag;
+	}
+
+	/**
+	 * Whether {@code properties} holds exactly the entries of this snapshot;
+	 * the caller holds the lock of {@code properties}.
+	 */
+	private boolean sameContent(Properties properties) {
+
+		if (properties.size() != entries.size()) {
+			return false;
+		}
+		for (Map.Entry<Object, Object> entry : properties.entrySet()) {
+			String value = entries.get(String.valueOf(entry.getKey()));
+			if (value == null || !value.equals(String.valueOf(entry.getValue()))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static byte[] serialize(SortedMap<String, String> entries) {
+
+		JsonBuffer buffer = new JsonBuffer();
+		buffer.append('{');
+		boolean first = true;
+		for (Map.Entry<String, String> entry : entries.entrySet()) {
+			if (!first) {
+				buffer.append(',');
+			}
+			first = false;
+			buffer.append('"').appendEscaped(entry.getKey()).append('"').append(':');
+			buffer.append('"').appendEscaped(entry.getValue()).append('"');
+		}
+		buffer.append('}');
+		return buffer.toByteArray();
+	}
+
+	private static String sha256(byte[] content) {
+
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+			StringBuilder hex = new StringBuilder(32);
+			// 128 bits are plenty to tell versions apart
+			for (int i = 0; i < 16; i++) {
+				hex.append(Character.forDigit((digest[i] >> 4) & 0xf, 16)).append(Character.forDigit(digest[i] & 0xf, 16));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
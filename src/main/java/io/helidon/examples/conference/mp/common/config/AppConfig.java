@@ -1,88 +1,181 @@
 package io.helidon.examples.conference.mp.common.config;
 
-import javax.enterprise.context.RequestScoped;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Event;
 import javax.inject.Inject;
-import javax.inject.Provider;
 
-import org.eclipse.microprofile.config.inject.ConfigProperty;
-
-@RequestScoped
+import org.eclipse.microprofile.config.Config;
+
+import io.helidon.microprofile.config.MpConfig;
+
+/**
+ * Application wide holder of the current {@link OciSettings}.
+ *
+ * <p>
+ * The settings are read once into an immutable snapshot, so requests read
+ * plain fields instead of resolving config properties. When the watched
+ * configuration file changes, a new snapshot is built and swapped in
+ * atomically; if it differs from the current one, it is fired as a CDI event
+ * so caches that depend on the settings can drop their entries.
+ * </p>
+ *
+ * <p>
+ * It also holds the limits of the outbound batch endpoint, read once at
+ * startup.
+ * </p>
+ */
+@ApplicationScoped
 public class AppConfig {
 
+	private static final Logger LOGGER = Logger.getLogger(AppConfig.class.getName());
+
 	/**
-	 * The Provider<> interface used, forces the service to retrieve the
-	 * inMaintenance value just in time. This retrieval of the value just in time
-	 * makes the config injection dynamic and able to change without having to
-	 * restart the application.
+	 * Comma separated regions to list clusters in; empty for the default region
+	 * only.
 	 */
-	@Inject
-	@ConfigProperty(name = "default.region")
-	private Provider<String> DEFAULT_REGION;
+	private static final String REGIONS = "clusters.regions";
 
-	@Inject
-	@ConfigProperty(name = "tenancy.ocid")
-	private String TENANCY_OCID;
+	/**
+	 * Time allowed for all pages of a region, in milliseconds.
+	 */
+	private static final String REGION_TIMEOUT = "clusters.region.timeout.ms";
+	private static final long DEFAULT_REGION_TIMEOUT = 10000;
 
-	@Inject
-	@ConfigProperty(name = "user.ocid")
-	private String USER_OCID;
+	private final AtomicReference<OciSettings> settings;
+	private final Event<OciSettings> changed;
+	private final int outboundBatchConcurrency;
+	private final int outboundBatchMaxSize;
 
+	/**
+	 * @param config  the application configuration
+	 * @param changed fired with the new settings after they changed
+	 */
 	@Inject
-	@ConfigProperty(name = "fingerprint")
-	private String FINGERPRINT;
+	public AppConfig(Config config, Event<OciSettings> changed) {
+		this.changed = changed;
+		this.settings = new AtomicReference<>(read(config));
+		this.outboundBatchConcurrency = config.getOptionalValue("greet.outbound.batch.concurrency", Integer.class)
+				.orElse(8);
+		this.outboundBatchMaxSize = config.getOptionalValue("greet.outbound.batch.max.size", Integer.class)
+				.orElse(100);
+		if (config instanceof MpConfig) {
+			((MpConfig) config).helidonConfig().onChange(this::reload);
+		} else {
+			LOGGER.warning("Configuration " + config.getClass().getName()
+					+ " cannot report changes, OCI settings are read once and changes are ignored until restart");
+		}
+	}
 
-	@Inject
-	@ConfigProperty(name = "private.pem")
-	private String PRIVATE_PEM;
+	/**
+	 * @return the current settings; read them once per operation so all values
+	 *         come from the same snapshot
+	 */
+	public OciSettings current() {
+		return settings.get();
+	}
 
-	@Inject
-	@ConfigProperty(name = "default.compartment.id")
-	private String DEFAULT_COMPARTMENT_ID;
+	/**
+	 * @return how many names of an outbound batch are greeted in parallel
+	 */
+	public int getOutboundBatchConcurrency() {
+		return outboundBatchConcurrency;
+	}
 
 	/**
-	 * The Provider<> interface used, forces the service to retrieve the
-	 * inMaintenance value just in time. This retrieval of the value just in time
-	 * makes the config injection dynamic and able to change without having to
-	 * restart the application.
+	 * @return the largest accepted outbound batch
 	 */
-	@Inject
-	@ConfigProperty(name = "endpoint.containerengine.default")
-	private Provider<String> ENDPOINT_CONTAINERENGINE_DEFAULT;
+	public int getOutboundBatchMaxSize() {
+		return outboundBatchMaxSize;
+	}
 
-	@Inject
-	@ConfigProperty(name = "restapi.listclusters")
-	private String RESTAPI_LIST_CLUSTERS;
+	private void reload(io.helidon.config.Config config) {
+
+		OciSettings reloaded;
+		try {
+			reloaded = read(config);
+		} catch (RuntimeException e) {
+			LOGGER.log(Level.WARNING, "Ignoring invalid configuration change, keeping the current OCI settings", e);
+			return;
+		}
+		OciSettings previous = settings.getAndSet(reloaded);
+		if (!reloaded.equals(previous)) {
+			LOGGER.info("OCI settings changed");
+			changed.fire(reloaded);
+		}
+	}
+
+	private static OciSettings read(Config config) {
+
+		Map<String, String> endpoints = new HashMap<>();
+		for (String name : config.getPropertyNames()) {
+			if (name.startsWith(OciSettings.ENDPOINT_PREFIX)) {
+				endpoints.put(name.substring(OciSettings.ENDPOINT_PREFIX.length()), config.getValue(name, String.class));
+			}
+		}
+		List<String> regions = split(config.getOptionalValue(REGIONS, String.class).orElse(""));
+		long regionTimeout = config.getOptionalValue(REGION_TIMEOUT, Long.class).orElse(DEFAULT_REGION_TIMEOUT);
+		return new OciSettings(key -> config.getValue(key, String.class), regions, endpoints, regionTimeout);
+	}
+
+	private static OciSettings read(io.helidon.config.Config config) {
+
+		Map<String, String> endpoints = new HashMap<>();
+		config.get(OciSettings.ENDPOINT_PREFIX.substring(0, OciSettings.ENDPOINT_PREFIX.length() - 1)).traverse()
+				.filter(io.helidon.config.Config::isLeaf)
+				.forEach(node -> endpoints.put(node.name(), node.asString().get()));
+		io.helidon.config.Config regionsNode = config.get(REGIONS);
+		List<String> regions = !regionsNode.exists() ? Collections.emptyList()
+				: regionsNode.isLeaf() ? split(regionsNode.asString().get())
+						: regionsNode.asList(String.class).get();
+		long regionTimeout = config.get(REGION_TIMEOUT).asLong().orElse(DEFAULT_REGION_TIMEOUT);
+		return new OciSettings(key -> config.get(key).asString().get(), regions, endpoints, regionTimeout);
+	}
+
+	private static List<String> split(String regions) {
+		return Arrays.stream(regions.split(",")).map(String::trim).filter(region -> !region.isEmpty())
+				.collect(Collectors.toList());
+	}
 
 	public String getDEFAULT_REGION() {
-		return DEFAULT_REGION.get();
+		return current().getDefaultRegion();
 	}
 
 	public String getTENANCY_OCID() {
-		return TENANCY_OCID;
+		return current().getTenancyOcid();
 	}
 
 	public String getUSER_OCID() {
-		return USER_OCID;
+		return current().getUserOcid();
 	}
 
 	public String getFINGERPRINT() {
-		return FINGERPRINT;
+		return current().getFingerprint();
 	}
 
 	public String getPRIVATE_PEM() {
-		return PRIVATE_PEM;
+		return current().getPrivatePem();
 	}
 
 	public String getDEFAULT_COMPARTMENT_ID() {
-		return DEFAULT_COMPARTMENT_ID;
+		return current().getDefaultCompartmentId();
 	}
 
 	public String getENDPOINT_CONTAINERENGINE_DEFAULT() {
-		return ENDPOINT_CONTAINERENGINE_DEFAULT.get();
+		return current().getContainerEngineEndpointDefault();
 	}
 
 	public String getRESTAPI_LIST_CLUSTERS() {
-		return RESTAPI_LIST_CLUSTERS;
+		return current().getListClustersPath();
 	}
 
 }
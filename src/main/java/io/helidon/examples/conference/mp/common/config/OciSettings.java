@@ -0,0 +1,188 @@
+package io.helidon.examples.conference.mp.common.config;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import io.helidon.examples.conference.mp.common.util.SignerRegistry;
+
+/**
+ * Immutable snapshot of the OCI settings. Values derived from them, such as
+ * the apiKey and the ListClusters URI, are computed once per snapshot instead
+ * of once per request.
+ */
+public final class OciSettings {
+
+	/**
+	 * Prefix of the Container Engine endpoint keys; the rest of the key names
+	 * the region, or {@code default}.
+	 */
+	public static final String ENDPOINT_PREFIX = "endpoint.containerengine.";
+
+	private final String defaultRegion;
+	private final String tenancyOcid;
+	private final String userOcid;
+	private final String fingerprint;
+	private final String privatePem;
+	private final String defaultCompartmentId;
+	private final Map<String, String> containerEngineEndpoints;
+	private final String listClustersPath;
+	private final Map<String, String> regionEndpoints;
+	private final long regionTimeout;
+	private final String apiKey;
+	private final String listClustersUri;
+
+	/**
+	 * @param value         returns the value of a required key, failing if it
+	 *                      is missing
+	 * @param regions       the regions to list clusters in, or an empty list for
+	 *                      the default region only
+	 * @param endpoints     the Container Engine endpoints by region
+	 * @param regionTimeout time allowed for all pages of a region, in
+	 *                      milliseconds
+	 */
+	OciSettings(Function<String, String> value, List<String> regions, Map<String, String> endpoints,
+			long regionTimeout) {
+		this.defaultRegion = value.apply("default.region");
+		this.tenancyOcid = value.apply("tenancy.ocid");
+		this.userOcid = value.apply("user.ocid");
+		this.fingerprint = value.apply("fingerprint");
+		this.privatePem = value.apply("private.pem");
+		this.defaultCompartmentId = value.apply("default.compartment.id");
+		this.containerEngineEndpoints = Collections.unmodifiableMap(new TreeMap<>(endpoints));
+		this.listClustersPath = value.apply("restapi.listclusters");
+		if (!endpoints.containsKey("default")) {
+			throw new IllegalArgumentException("Missing " + ENDPOINT_PREFIX + "default");
+		}
+
+		this.regionEndpoints = Collections.unmodifiableMap(regionEndpoints(regions));
+		this.regionTimeout = regionTimeout;
+		this.apiKey = SignerRegistry.apiKey(tenancyOcid, userOcid, fingerprint);
+		this.listClustersUri = listClustersUri(endpoints.get("default"));
+	}
+
+	public String getDefaultRegion() {
+		return defaultRegion;
+	}
+
+	public String getTenancyOcid() {
+		return tenancyOcid;
+	}
+
+	public String getUserOcid() {
+		return userOcid;
+	}
+
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+	public String getPrivatePem() {
+		return privatePem;
+	}
+
+	public String getDefaultCompartmentId() {
+		return defaultCompartmentId;
+	}
+
+	/**
+	 * @return the Container Engine endpoints by region, including
+	 *         {@code default}
+	 */
+	public Map<String, String> getContainerEngineEndpoints() {
+		return containerEngineEndpoints;
+	}
+
+	public String getContainerEngineEndpointDefault() {
+		return containerEngineEndpoints.get("default");
+	}
+
+	/**
+	 * @return the Container Engine endpoint of each region clusters are listed
+	 *         in, in configuration order
+	 */
+	public Map<String, String> getRegionEndpoints() {
+		return regionEndpoints;
+	}
+
+	/**
+	 * @return the time allowed for all pages of a region, in milliseconds
+	 */
+	public long getRegionTimeout() {
+		return regionTimeout;
+	}
+
+	public String getListClustersPath() {
+		return listClustersPath;
+	}
+
+	/**
+	 * @return the signing key id, "tenancy/user/fingerprint"
+	 */
+	public String getApiKey() {
+		return apiKey;
+	}
+
+	/**
+	 * @return the ListClusters URI of the default endpoint for the default
+	 *         compartment
+	 */
+	public String getListClustersUri() {
+		return listClustersUri;
+	}
+
+	/**
+	 * @return the ListClusters URI of an endpoint for the default compartment
+	 */
+	public String listClustersUri(String endpoint) {
+		// Older ocid formats included ":" which must be escaped
+		return endpoint + listClustersPath + "?compartmentId=" + defaultCompartmentId.replace(":", "%3A");
+	}
+
+	/**
+	 * Use the endpoint configured for a region, the default endpoint for the
+	 * default region, and the public OCI endpoint otherwise.
+	 */
+	private Map<String, String> regionEndpoints(List<String> regions) {
+
+		Map<String, String> result = new LinkedHashMap<>();
+		for (String region : regions.isEmpty() ? Collections.singletonList(defaultRegion) : regions) {
+			String endpoint = containerEngineEndpoints.get(region);
+			if (endpoint == null && region.equals(defaultRegion)) {
+				endpoint = getContainerEngineEndpointDefault();
+			}
+			if (endpoint == null) {
+				endpoint = "https://containerengine." + region + ".oraclecloud.com";
+			}
+			result.put(region, endpoint);
+		}
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof OciSettings)) {
+			return false;
+		}
+		OciSettings other = (OciSettings) o;
+		return defaultRegion.equals(other.defaultRegion) && tenancyOcid.equals(other.tenancyOcid)
+				&& userOcid.equals(other.userOcid) && fingerprint.equals(other.fingerprint)
+				&& privatePem.equals(other.privatePem) && defaultCompartmentId.equals(other.defaultCompartmentId)
+				&& containerEngineEndpoints.equals(other.containerEngineEndpoints)
+				&& listClustersPath.equals(other.listClustersPath) && regionEndpoints.equals(other.regionEndpoints)
+				&& regionTimeout == other.regionTimeout;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(defaultRegion, tenancyOcid, userOcid, fingerprint, privatePem, defaultCompartmentId,
+				containerEngineEndpoints, listClustersPath, regionEndpoints, regionTimeout);
+	}
+}
@@ -0,0 +1,354 @@
+package io.helidon.examples.conference.mp.common.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiPredicate;
+import java.util.function.Supplier;
+
+import org.eclipse.microprofile.metrics.Counter;
+
+/**
+ * Adaptive limit on the number of concurrent calls to one downstream service.
+ *
+ * <p>
+ * The limit follows AIMD (additive increase, multiplicative decrease) driven
+ * by the observed latency. Every completed call is a sample. A call that was
+ * dropped, because it timed out or the service answered that it is
+ * overloaded, or that took longer than {@code tolerance} times the average
+ * latency, multiplies the limit by {@code backoff}; calls that started before
+ * the previous decrease do not decrease it again. Other calls grow the limit
+ * by about one per round trip, as long as the limit is actually used. The
+ * average covers about the last ten seconds, so a lasting change in latency
+ * becomes the new normal while a sudden rise backs off.
+ * </p>
+ *
+ * <p>
+ * A call beyond the limit waits in a bounded queue for at most
+ * {@code queueTimeout} milliseconds. A call that finds the queue full, or that
+ * is still queued after the timeout, is rejected with a
+ * {@link RejectedExecutionException}.
+ * </p>
+ */
+public final class ConcurrencyLimiter {
+
+	/**
+	 * Time constant of the average latency, in nanoseconds: samples older than
+	 * this weigh little, whatever the call rate.
+	 */
+	private static final double LATENCY_WINDOW = TimeUnit.SECONDS.toNanos(10);
+
+	private final String name;
+	private final int minLimit;
+	private final int maxLimit;
+	private final double backoff;
+	private final double tolerance;
+	private final int queueSize;
+	private final long queueTimeout;
+	private final ScheduledExecutorService scheduler;
+	private final Counter rejections;
+
+	private final Deque<CompletableFuture<Permit>> waiting = new ArrayDeque<>();
+	private double limit;
+	private int inFlight;
+	private double averageLatency;
+	private long lastSample;
+	private long lastDecrease;
+
+	/**
+	 * @param name         name of the downstream service, used in rejection
+	 *                     messages
+	 * @param initialLimit limit before the first sample
+	 * @param minLimit     the limit never drops below this
+	 * @param maxLimit     the limit never grows above this
+	 * @param backoff      factor applied to the limit on a dropped or slow call
+	 * @param tolerance    a call slower than this times the average latency
+	 *                     counts as slow
+	 * @param queueSize    calls allowed to wait for a free slot
+	 * @param queueTimeout maximum time a call waits for a free slot, in
+	 *                     milliseconds
+	 * @param scheduler    timer expiring queued calls
+	 * @param rejections   counts rejected calls
+	 */
+	public ConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit, double backoff,
+			double tolerance, int queueSize, long queueTimeout, ScheduledExecutorService scheduler,
+			Counter rejections) {
+
+		if (minLimit < 1 || maxLimit < minLimit || backoff <= 0 || backoff >= 1 || tolerance < 1) {
+			throw new IllegalArgumentException("Invalid concurrency limit settings for " + name);
+		}
+		this.name = name;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.backoff = backoff;
+		this.tolerance = tolerance;
+		this.queueSize = queueSize;
+		this.queueTimeout = queueTimeout;
+		this.scheduler = scheduler;
+		this.rejections = rejections;
+		this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+		this.lastDecrease = System.nanoTime();
+	}
+
+	/**
+	 * Whether an HTTP status means the service is overloaded rather than that
+	 * the request was wrong.
+	 */
+	public static boolean isOverload(int status) {
+		return status == 429 || status == 503 || status == 504;
+	}
+
+	/**
+	 * Take a slot, waiting in the queue if the limit is reached.
+	 *
+	 * @return completes with the permit once a slot is free, or with a
+	 *         {@link RejectedExecutionException} if the call is rejected
+	 */
+	public CompletableFuture<Permit> acquire() {
+
+		CompletableFuture<Permit> result = new CompletableFuture<>();
+		synchronized (this) {
+			if (waiting.isEmpty() && inFlight < limit) {
+				inFlight++;
+				result.complete(new Permit(inFlight));
+				return result;
+			}
+			if (waiting.size() >= queueSize || queueTimeout <= 0) {
+				result.completeExceptionally(rejected());
+				return result;
+			}
+			waiting.addLast(result);
+		}
+		scheduler.schedule(() -> expire(result), queueTimeout, TimeUnit.MILLISECONDS);
+		return result;
+	}
+
+	/**
+	 * Take a slot, blocking the calling thread while the call is queued.
+	 *
+	 * @throws RejectedExecutionException if the call is rejected
+	 */
+	public Permit acquireBlocking() {
+
+		try {
+			return acquire().get();
+		} catch (ExecutionException e) {
+			throw (RejectedExecutionException) e.getCause();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RejectedExecutionException("Interrupted waiting for " + name, e);
+		}
+	}
+
+	/**
+	 * Run an asynchronous call within the limit.
+	 *
+	 * <p>
+	 * Cancelling the returned stage while the call is queued gives up its
+	 * place in the queue, or the slot if one was being handed to it; the call
+	 * is then never started. A call that started keeps its slot until it
+	 * completes.
+	 * </p>
+	 *
+	 * @param call    starts the call once a slot is free
+	 * @param dropped tells from the call's result or error whether the service
+	 *                was overloaded
+	 * @return the result of the call, or a {@link RejectedExecutionException}
+	 *         if it was rejected
+	 */
+	public <T> CompletionStage<T> limit(Supplier<? extends CompletionStage<T>> call,
+			BiPredicate<? super T, ? super Throwable> dropped) {
+
+		CompletableFuture<T> result = new CompletableFuture<>();
+		// the slot belongs to whichever comes first: the call starting or the
+		// result being cancelled
+		AtomicBoolean claimed = new AtomicBoolean();
+		CompletableFuture<Permit> waiter = acquire();
+		waiter.whenComplete((permit, error) -> {
+			if (error != null) {
+				result.completeExceptionally(error);
+			} else if (!claimed.compareAndSet(false, true)) {
+				permit.ignore();
+			} else {
+				start(call, dropped, permit, result);
+			}
+		});
+		result.whenComplete((value, error) -> {
+			if (result.isCancelled() && claimed.compareAndSet(false, true)) {
+				leaveQueue(waiter);
+			}
+		});
+		return result;
+	}
+
+	private static <T> void start(Supplier<? extends CompletionStage<T>> call,
+			BiPredicate<? super T, ? super Throwable> dropped, Permit permit, CompletableFuture<T> result) {
+
+		CompletionStage<T> stage;
+		try {
+			stage = call.get();
+		} catch (RuntimeException e) {
+			permit.ignore();
+			result.completeExceptionally(e);
+			return;
+		}
+		stage.whenComplete((value, error) -> {
+			// completed first, so a competing call cancelled by this result leaves
+			// the queue before the slot is handed on
+			if (error != null) {
+				result.completeExceptionally(error);
+			} else {
+				result.complete(value);
+			}
+			if (dropped.test(value, error)) {
+				permit.dropped();
+			} else if (error != null) {
+				permit.ignore();
+			} else {
+				permit.success();
+			}
+		});
+	}
+
+	public synchronized int getLimit() {
+		return (int) limit;
+	}
+
+	public synchronized int getInFlight() {
+		return inFlight;
+	}
+
+	public synchronized int getQueued() {
+		return waiting.size();
+	}
+
+	private void expire(CompletableFuture<Permit> waiter) {
+
+		boolean removed;
+		synchronized (this) {
+			removed = waiting.remove(waiter);
+		}
+		if (removed) {
+			waiter.completeExceptionally(rejected());
+		}
+	}
+
+	/**
+	 * Remove a call that no longer wants a slot from the queue. If it is not
+	 * queued any more, a slot was handed to it and its owner releases it.
+	 */
+	private void leaveQueue(CompletableFuture<Permit> waiter) {
+
+		boolean removed;
+		synchronized (this) {
+			removed = waiting.remove(waiter);
+		}
+		if (removed) {
+			waiter.cancel(false);
+		}
+	}
+
+	private RejectedExecutionException rejected() {
+		rejections.inc();
+		return new RejectedExecutionException("Concurrency limit reached for " + name);
+	}
+
+	/**
+	 * Free a slot, adapt the limit to the sample and hand free slots to queued
+	 * calls.
+	 *
+	 * @param permit  the released permit
+	 * @param latency the call's latency in nanoseconds, or a negative value if it
+	 *                is not a sample
+	 * @param dropped whether the call was dropped
+	 */
+	private void release(Permit permit, long latency, boolean dropped) {
+
+		Deque<CompletableFuture<Permit>> ready = null;
+		Deque<Permit> permits = null;
+		synchronized (this) {
+			inFlight--;
+			if (latency >= 0 || dropped) {
+				long now = System.nanoTime();
+				boolean slow = averageLatency > 0 && latency > averageLatency * tolerance;
+				if (dropped || slow) {
+					if (permit.started - lastDecrease >= 0) {
+						limit = Math.max(minLimit, limit * backoff);
+						lastDecrease = now;
+					}
+				} else if (permit.inFlight * 2 >= limit) {
+					limit = Math.min(maxLimit, limit + 1 / limit);
+				}
+				if (latency >= 0) {
+					double weight = averageLatency == 0 ? 1 : 1 - Math.exp(-(now - lastSample) / LATENCY_WINDOW);
+					averageLatency += (latency - averageLatency) * weight;
+					lastSample = now;
+				}
+			}
+			while (!waiting.isEmpty() && inFlight < limit) {
+				if (ready == null) {
+					ready = new ArrayDeque<>();
+					permits = new ArrayDeque<>();
+				}
+				inFlight++;
+				ready.addLast(waiting.removeFirst());
+				permits.addLast(new Permit(inFlight));
+			}
+		}
+		// completed outside the lock, as completing runs the waiting calls
+		while (ready != null && !ready.isEmpty()) {
+			Permit handed = permits.removeFirst();
+			if (!ready.removeFirst().complete(handed)) {
+				handed.ignore();
+			}
+		}
+	}
+
+	/**
+	 * A slot held by one call. Exactly one of {@link #success()},
+	 * {@link #dropped()} or {@link #ignore()} frees it; later calls are no-ops.
+	 */
+	public final class Permit {
+
+		private final AtomicBoolean released = new AtomicBoolean();
+		private final long started = System.nanoTime();
+		private final int inFlight;
+
+		private Permit(int inFlight) {
+			this.inFlight = inFlight;
+		}
+
+		/**
+		 * The call completed; its latency is a sample.
+		 */
+		public void success() {
+			if (released.compareAndSet(false, true)) {
+				release(this, System.nanoTime() - started, false);
+			}
+		}
+
+		/**
+		 * The call timed out or the service was overloaded.
+		 */
+		public void dropped() {
+			if (released.compareAndSet(false, true)) {
+				release(this, -1, true);
+			}
+		}
+
+		/**
+		 * The call failed for a reason unrelated to load; it is not a sample.
+		 */
+		public void ignore() {
+			if (released.compareAndSet(false, true)) {
+				release(this, -1, false);
+			}
+		}
+	}
+}
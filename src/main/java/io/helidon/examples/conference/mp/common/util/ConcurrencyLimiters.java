@@ -0,0 +1,103 @@
+package io.helidon.examples.conference.mp.common.util;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.annotation.Gauge;
+
+/**
+ * The {@link ConcurrencyLimiter}s of the application's downstream services:
+ * {@code oci} for the signed OCI calls made by {@link RestUtil}, and
+ * {@code outbound} for the secured greet target.
+ *
+ * <p>
+ * Each limiter reads its settings from {@code limiter.<name>.*} and counts its
+ * rejected calls in {@code limiter.<name>.rejected}; its current limit,
+ * in-flight and queued calls are exposed as gauges.
+ * </p>
+ *
+ * <p>
+ * The OCI limit starts below its maximum so that it can grow while OCI answers
+ * quickly. Asynchronous OCI calls take their slot before they are handed to
+ * the engine's executor, so the limit never holds executor threads waiting.
+ * </p>
+ */
+@ApplicationScoped
+public class ConcurrencyLimiters {
+
+	private final ConcurrencyLimiter oci;
+	private final ConcurrencyLimiter outbound;
+
+	/**
+	 * @param config   configuration holding the limiter settings
+	 * @param engine   engine whose timer expires queued calls
+	 * @param registry registry for the rejection counters
+	 */
+	@Inject
+	public ConcurrencyLimiters(Config config, RestClientEngine engine, MetricRegistry registry) {
+		this.oci = create("oci", 8, 16, config, engine, registry);
+		this.outbound = create("outbound", 8, 64, config, engine, registry);
+	}
+
+	private static ConcurrencyLimiter create(String name, int initialLimit, int maxLimit, Config config,
+			RestClientEngine engine, MetricRegistry registry) {
+
+		String prefix = "limiter." + name + ".";
+		return new ConcurrencyLimiter(name,
+				config.getOptionalValue(prefix + "initial", Integer.class).orElse(initialLimit),
+				config.getOptionalValue(prefix + "min", Integer.class).orElse(1),
+				config.getOptionalValue(prefix + "max", Integer.class).orElse(maxLimit),
+				config.getOptionalValue(prefix + "backoff", Double.class).orElse(0.9),
+				config.getOptionalValue(prefix + "latency.tolerance", Double.class).orElse(2.0),
+				config.getOptionalValue(prefix + "queue.size", Integer.class).orElse(50),
+				config.getOptionalValue(prefix + "queue.timeout.ms", Long.class).orElse(100L), engine.scheduler(),
+				registry.counter(prefix + "rejected"));
+	}
+
+	/**
+	 * @return the limiter of the signed OCI calls
+	 */
+	public ConcurrencyLimiter oci() {
+		return oci;
+	}
+
+	/**
+	 * @return the limiter of the calls to the secured greet target
+	 */
+	public ConcurrencyLimiter outbound() {
+		return outbound;
+	}
+
+	@Gauge(name = "limiter.oci.limit", unit = MetricUnits.NONE, absolute = true, description = "Current concurrency limit of the OCI calls")
+	public int getOciLimit() {
+		return oci.getLimit();
+	}
+
+	@Gauge(name = "limiter.oci.inflight", unit = MetricUnits.NONE, absolute = true, description = "OCI calls in flight")
+	public int getOciInFlight() {
+		return oci.getInFlight();
+	}
+
+	@Gauge(name = "limiter.oci.queued", unit = MetricUnits.NONE, absolute = true, description = "OCI calls waiting for the concurrency limit")
+	public int getOciQueued() {
+		return oci.getQueued();
+	}
+
+	@Gauge(name = "limiter.outbound.limit", unit = MetricUnits.NONE, absolute = true, description = "Current concurrency limit of the outbound greet calls")
+	public int getOutboundLimit() {
+		return outbound.getLimit();
+	}
+
+	@Gauge(name = "limiter.outbound.inflight", unit = MetricUnits.NONE, absolute = true, description = "Outbound greet calls in flight")
+	public int getOutboundInFlight() {
+		return outbound.getInFlight();
+	}
+
+	@Gauge(name = "limiter.outbound.queued", unit = MetricUnits.NONE, absolute = true, description = "Outbound greet calls waiting for the concurrency limit")
+	public int getOutboundQueued() {
+		return outbound.getQueued();
+	}
+}
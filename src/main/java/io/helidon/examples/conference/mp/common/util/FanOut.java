@@ -0,0 +1,94 @@
+package io.helidon.examples.conference.mp.common.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Runs one asynchronous call per item with a bounded number of calls in
+ * flight.
+ *
+ * <p>
+ * Up to {@code concurrency} calls are started immediately; each completed call
+ * starts the next pending one. A failed call is mapped through the fallback of
+ * its own item, so one failure never fails the batch; only a fallback that
+ * throws does, and no further calls are started then. Results are returned in
+ * the order of the items.
+ * </p>
+ */
+public final class FanOut {
+
+	private FanOut() {
+	}
+
+	/**
+	 * @param items       the items to call for
+	 * @param concurrency maximum number of calls in flight
+	 * @param call        starts the call for one item
+	 * @param fallback    result for an item whose call failed
+	 * @return the results, in item order, once all calls completed, or the
+	 *         exception thrown by the fallback
+	 */
+	public static <T, R> CompletionStage<List<R>> map(List<T> items, int concurrency,
+			Function<T, CompletionStage<R>> call, BiFunction<T, Throwable, R> fallback) {
+
+		if (items.isEmpty()) {
+			return CompletableFuture.completedFuture(Collections.emptyList());
+		}
+
+		List<R> results = new ArrayList<>(Collections.nCopies(items.size(), null));
+		AtomicInteger next = new AtomicInteger();
+		AtomicInteger remaining = new AtomicInteger(items.size());
+		CompletableFuture<List<R>> done = new CompletableFuture<>();
+
+		Runnable[] startNext = new Runnable[1];
+		startNext[0] = () -> {
+			int index = next.getAndIncrement();
+			if (index >= items.size() || done.isDone()) {
+				return;
+			}
+			T item = items.get(index);
+			CompletionStage<R> result;
+			try {
+				result = call.apply(item);
+			} catch (RuntimeException e) {
+				result = failed(e);
+			}
+			result.whenComplete((value, error) -> {
+				R outcome;
+				try {
+					outcome = error == null ? value : fallback.apply(item, error);
+				} catch (RuntimeException e) {
+					done.completeExceptionally(e);
+					return;
+				}
+				synchronized (results) {
+					results.set(index, outcome);
+				}
+				if (remaining.decrementAndGet() == 0) {
+					synchronized (results) {
+						done.complete(results);
+					}
+				} else {
+					startNext[0].run();
+				}
+			});
+		};
+
+		for (int i = 0; i < Math.min(concurrency, items.size()); i++) {
+			startNext[0].run();
+		}
+		return done;
+	}
+
+	private static <R> CompletionStage<R> failed(Throwable error) {
+		CompletableFuture<R> result = new CompletableFuture<>();
+		result.completeExceptionally(error);
+		return result;
+	}
+}
@@ -0,0 +1,163 @@
+package io.helidon.examples.conference.mp.common.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer for writing JSON as UTF-8.
+ *
+ * <p>
+ * Strings are escaped and encoded straight into the buffer, the same way
+ * JSON-P escapes them, so a response is assembled without intermediate
+ * {@code String}s or encoders and written to the entity stream in one call.
+ * {@link #forThread()} hands out a buffer reused by the current thread.
+ * </p>
+ */
+public final class JsonBuffer {
+
+	private static final int INITIAL_SIZE = 512;
+
+	/**
+	 * Buffers that grew beyond this size are not kept for reuse.
+	 */
+	private static final int MAX_RETAINED_SIZE = 64 * 1024;
+
+	private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+	private static final ThreadLocal<JsonBuffer> BUFFERS = ThreadLocal.withInitial(JsonBuffer::new);
+
+	private byte[] bytes;
+	private int count;
+
+	public JsonBuffer() {
+		this.bytes = new byte[INITIAL_SIZE];
+	}
+
+	/**
+	 * @return the empty buffer of the current thread; it must not be used after
+	 *         the thread writes another response
+	 */
+	public static JsonBuffer forThread() {
+		JsonBuffer buffer = BUFFERS.get();
+		if (buffer.bytes.length > MAX_RETAINED_SIZE) {
+			buffer.bytes = new byte[INITIAL_SIZE];
+		}
+		buffer.count = 0;
+		return buffer;
+	}
+
+	/**
+	 * Escape a string for use between the quotes of a JSON string and encode it
+	 * as UTF-8.
+	 */
+	public static byte[] escape(CharSequence value) {
+		return new JsonBuffer().appendEscaped(value).toByteArray();
+	}
+
+	/**
+	 * Append bytes that are already valid JSON, such as a pre-encoded template.
+	 */
+	public JsonBuffer append(byte[] json) {
+		ensure(json.length);
+		System.arraycopy(json, 0, bytes, count, json.length);
+		count += json.length;
+		return this;
+	}
+
+	/**
+	 * Append a single ASCII character such as a quote or a comma.
+	 */
+	public JsonBuffer append(char ascii) {
+		ensure(1);
+		bytes[count++] = (byte) ascii;
+		return this;
+	}
+
+	/**
+	 * Append a string escaped for use between the quotes of a JSON string.
+	 * Unpaired surrogates are written as '?', as {@link String#getBytes} does.
+	 */
+	public JsonBuffer appendEscaped(CharSequence value) {
+
+		int length = value.length();
+		// worst case: six bytes per char for \\u00XX, 3 bytes for other chars
+		ensure(length * 6);
+		byte[] b = bytes;
+		int n = count;
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			if (c >= 0x20 && c < 0x80) {
+				if (c == '"' || c == '\\') {
+					b[n++] = '\\';
+				}
+				b[n++] = (byte) c;
+			} else if (c < 0x20) {
+				b[n++] = '\\';
+				switch (c) {
+				case '\b':
+					b[n++] = 'b';
+					break;
+				case '\f':
+					b[n++] = 'f';
+					break;
+				case '\n':
+					b[n++] = 'n';
+					break;
+				case '\r':
+					b[n++] = 'r';
+					break;
+				case '\t':
+					b[n++] = 't';
+					break;
+				default:
+					b[n++] = 'u';
+					b[n++] = '0';
+					b[n++] = '0';
+					b[n++] = HEX[c >> 4];
+					b[n++] = HEX[c & 0xf];
+				}
+			} else if (c < 0x800) {
+				b[n++] = (byte) (0xc0 | (c >> 6));
+				b[n++] = (byte) (0x80 | (c & 0x3f));
+			} else if (Character.isHighSurrogate(c) && i + 1 < length
+					&& Character.isLowSurrogate(value.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, value.charAt(++i));
+				b[n++] = (byte) (0xf0 | (codePoint >> 18));
+				b[n++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+				b[n++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+				b[n++] = (byte) (0x80 | (codePoint & 0x3f));
+			} else if (Character.isSurrogate(c)) {
+				b[n++] = '?';
+			} else {
+				b[n++] = (byte) (0xe0 | (c >> 12));
+				b[n++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+				b[n++] = (byte) (0x80 | (c & 0x3f));
+			}
+		}
+		count = n;
+		return this;
+	}
+
+	/**
+	 * @return the number of bytes written so far
+	 */
+	public int size() {
+		return count;
+	}
+
+	public byte[] toByteArray() {
+		return Arrays.copyOf(bytes, count);
+	}
+
+	public void writeTo(OutputStream output) throws IOException {
+		output.write(bytes, 0, count);
+	}
+
+	private void ensure(int extra) {
+		if (count + extra > bytes.length) {
+			bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, count + extra));
+		}
+	}
+}
@@ -0,0 +1,251 @@
+package io.helidon.examples.conference.mp.common.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import javax.ws.rs.core.StreamingOutput;
+
+/**
+ * Streams a paginated OCI list operation from several regions as one JSON
+ * object: {@code {"items":{"<region>":[...],...},"errors":{"<region>":"..."}}}.
+ *
+ * <p>
+ * The first pages of all regions are requested concurrently, and
+ * {@link #start} completes once each of them arrived or failed. Regions are
+ * then written in order, each as one JSON array: the items of a page are
+ * copied to the client as soon as the page arrives and the page is then
+ * released, so at most the page being written and the next one, requested
+ * before the current page is written, are held in memory. Every region has
+ * its own deadline covering all its pages. A region that fails or times out is reported under {@code errors}
+ * instead of failing the response; if it fails after some of its pages were
+ * written, those items are kept and the error says the list is partial.
+ * </p>
+ */
+public class MultiRegionPages implements StreamingOutput {
+
+	private final String itemsName;
+	private final List<Region> regions;
+	private final Map<String, String> errors = new LinkedHashMap<>();
+
+	private MultiRegionPages(String itemsName, List<Region> regions) {
+		this.itemsName = itemsName;
+		this.regions = regions;
+	}
+
+	/**
+	 * Request the first page of every region.
+	 *
+	 * @param itemsName     name of the member holding the items by region
+	 * @param pageLoaders   loads a page of a region for an {@code opc-next-page}
+	 *                      token, null for the first page; in output order
+	 * @param timeoutMillis time allowed for all pages of a region
+	 * @param restUtil      applies the timeouts
+	 * @param executor      completes the returned stage; writing the listing
+	 *                      blocks, so this must be neither the OCI executor nor
+	 *                      the timer that completes timed out regions
+	 * @return the listing, once the first page of every region arrived or failed,
+	 *         or a {@link java.util.concurrent.RejectedExecutionException} if
+	 *         {@code executor} is saturated
+	 */
+	public static CompletionStage<MultiRegionPages> start(String itemsName,
+			Map<String, Function<String, CompletionStage<RestResponse>>> pageLoaders, long timeoutMillis,
+			RestUtil restUtil, Executor executor) {
+
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		List<Region> regions = new ArrayList<>();
+		pageLoaders.forEach((name, loader) -> regions.add(new Region(name, loader, deadline,
+				restUtil.withTimeout(loader.apply(null), timeoutMillis))));
+
+		CompletableFuture<?>[] firstPages = regions.stream()
+				.map(region -> region.firstPage.handle((page, error) -> null)).toArray(CompletableFuture[]::new);
+		return CompletableFuture.allOf(firstPages).thenApplyAsync(done -> new MultiRegionPages(itemsName, regions),
+				executor);
+	}
+
+	/**
+	 * @return true if the first page of at least one region was loaded
+	 */
+	public boolean anyRegionAvailable() {
+		return regions.stream().anyMatch(region -> firstPage(region) != null);
+	}
+
+	@Override
+	public void write(OutputStream output) throws IOException {
+
+		output.write(("{\"" + itemsName + "\":{").getBytes(StandardCharsets.UTF_8));
+		boolean firstRegion = true;
+		for (Region region : regions) {
+			RestResponse page = firstPage(region);
+			if (page == null) {
+				continue;
+			}
+			if (!firstRegion) {
+				output.write(',');
+			}
+			firstRegion = false;
+			writeName(output, region.name);
+			writeRegion(output, region, page);
+		}
+		output.write("},\"errors\":{".getBytes(StandardCharsets.UTF_8));
+		boolean firstError = true;
+		for (Map.Entry<String, String> error : errors.entrySet()) {
+			if (!firstError) {
+				output.write(',');
+			}
+			firstError = false;
+			writeName(output, error.getKey());
+			output.write('"');
+			output.write(JsonBuffer.escape(error.getValue()));
+			output.write('"');
+		}
+		output.write("}}".getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * @return the loaded first page, or null after recording why there is none
+	 */
+	private RestResponse firstPage(Region region) {
+
+		try {
+			RestResponse page = region.firstPage.getNow(null);
+			if (page == null || page.getBody() == null) {
+				errors.put(region.name, "Failed to load clusters" + (page == null ? "" : ": " + page));
+				return null;
+			}
+			return page;
+		} catch (CompletionException e) {
+			errors.put(region.name, message(e.getCause()));
+			return null;
+		}
+	}
+
+	/**
+	 * Write the pages of a region as one array. A page that fails to load ends
+	 * the array and is recorded as the region's error; a failed write to the
+	 * client ends the response.
+	 */
+	private void writeRegion(OutputStream output, Region region, RestResponse firstPage) throws IOException {
+
+		output.write('[');
+		boolean empty = true;
+		RestResponse page = firstPage;
+		int pages = 0;
+		try {
+			while (page != null) {
+				// prefetch while this page is written
+				CompletionStage<RestResponse> next = page.getNextPage() == null ? null
+						: region.pageLoader.apply(page.getNextPage());
+				empty = writeItems(page, output, empty);
+				pages++;
+				output.flush();
+				page = next == null ? null : region.await(next);
+			}
+		} catch (PageException e) {
+			errors.put(region.name, "Partial list, " + pages + " page(s) loaded: " + e.getMessage());
+		}
+		output.write(']');
+	}
+
+	/**
+	 * Copy the items of a page, i.e. the content between the brackets of its
+	 * JSON array.
+	 *
+	 * @return true if nothing has been written to the array yet
+	 */
+	private static boolean writeItems(RestResponse page, OutputStream output, boolean empty)
+			throws IOException, PageException {
+
+		String body = page.getBody();
+		if (body == null) {
+			throw new PageException("Failed to load page: " + page);
+		}
+		int start = body.indexOf('[');
+		int end = body.lastIndexOf(']');
+		if (start < 0 || end < start) {
+			throw new PageException("Expected a JSON array, request id " + page.getRequestId());
+		}
+		String items = body.substring(start + 1, end).trim();
+		if (items.isEmpty()) {
+			return empty;
+		}
+		if (!empty) {
+			output.write(',');
+		}
+		output.write(items.getBytes(StandardCharsets.UTF_8));
+		return false;
+	}
+
+	private static void writeName(OutputStream output, String name) throws IOException {
+		output.write('"');
+		output.write(JsonBuffer.escape(name));
+		output.write("\":".getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String message(Throwable error) {
+		return error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+	}
+
+	/**
+	 * A page of a region could not be loaded or was not a JSON array.
+	 */
+	private static final class PageException extends Exception {
+
+		private static final long serialVersionUID = 1L;
+
+		private PageException(String message) {
+			super(message);
+		}
+	}
+
+	private static final class Region {
+
+		private final String name;
+		private final Function<String, CompletionStage<RestResponse>> pageLoader;
+		private final long deadline;
+		private final CompletableFuture<RestResponse> firstPage;
+
+		private Region(String name, Function<String, CompletionStage<RestResponse>> pageLoader, long deadline,
+				CompletableFuture<RestResponse> firstPage) {
+			this.name = name;
+			this.pageLoader = pageLoader;
+			this.deadline = deadline;
+			this.firstPage = firstPage;
+		}
+
+		/**
+		 * Wait for a page until the region's deadline.
+		 */
+		private RestResponse await(CompletionStage<RestResponse> page) throws IOException, PageException {
+
+			try {
+				RestResponse response = page.toCompletableFuture().get(Math.max(0, deadline - System.nanoTime()),
+						TimeUnit.NANOSECONDS);
+				if (response == null || response.getBody() == null) {
+					throw new PageException("Failed to load page" + (response == null ? "" : ": " + response));
+				}
+				return response;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while loading page");
+			} catch (ExecutionException e) {
+				throw new PageException(message(e.getCause()));
+			} catch (TimeoutException e) {
+				throw new PageException("Timed out loading page");
+			}
+		}
+	}
+}
@@ -0,0 +1,220 @@
+package io.helidon.examples.conference.mp.common.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.apache.http.client.methods.HttpRequestBase;
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Histogram;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+
+/**
+ * Per-phase metrics of the OCI calls made by {@link RestUtil}, per OCI
+ * operation.
+ *
+ * <p>
+ * The operation of a request is the {@code restapi.*} configuration key whose
+ * path is the longest prefix of the request path, for example
+ * {@code restapi.listclusters} for {@code /20180222/clusters}; requests
+ * matching none count as {@code other}. For each operation {@code <op>} the
+ * registry holds, tagged with {@code operation=<op>}:
+ * </p>
+ * <ul>
+ * <li>histograms, in microseconds, {@code oci.<op>.key.load} (signer lookup,
+ * including reading the key when it changed), {@code oci.<op>.sign},
+ * {@code oci.<op>.lease} (waiting for a pooled connection, and connecting if
+ * it was new), {@code oci.<op>.ttfb} (sending the request until the response
+ * head arrived), {@code oci.<op>.body.read} and {@code oci.<op>.total} (the
+ * whole call as seen by the caller, including queueing and retries);</li>
+ * <li>counters {@code oci.<op>.request.bytes}, {@code oci.<op>.response.bytes}
+ * (body bytes read; the bodies of failed responses are discarded unread),
+ * {@code oci.<op>.status.2xx} to {@code oci.<op>.status.5xx}, and
+ * {@code oci.<op>.network.errors} for attempts without a response.</li>
+ * </ul>
+ */
+@ApplicationScoped
+public class OutboundMetrics {
+
+	private static final String OPERATION_PREFIX = "restapi.";
+	private static final String OTHER = "other";
+
+	/**
+	 * Distinct request paths whose operation is remembered; paths usually
+	 * embed resource ids, so there is no bound on their number.
+	 */
+	private static final int MAX_PATHS = 256;
+
+	private final MetricRegistry registry;
+	private final TreeMap<String, String> operationsByPath = new TreeMap<>();
+	private final ConcurrentMap<String, Operation> operations = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, Operation> byPath = new ConcurrentHashMap<>();
+
+	/**
+	 * @param config   configuration holding the {@code restapi.*} paths
+	 * @param registry registry for the histograms and counters
+	 */
+	@Inject
+	public OutboundMetrics(Config config, MetricRegistry registry) {
+		this.registry = registry;
+		for (String name : config.getPropertyNames()) {
+			if (name.startsWith(OPERATION_PREFIX)) {
+				config.getOptionalValue(name, String.class).ifPresent(path -> operationsByPath.put(path, name));
+			}
+		}
+	}
+
+	/**
+	 * @return the metrics of the operation a request belongs to
+	 */
+	public Operation operation(HttpRequestBase request) {
+
+		String path = request.getURI().getRawPath();
+		if (path == null) {
+			return operation(OTHER);
+		}
+		Operation operation = byPath.get(path);
+		if (operation == null) {
+			operation = operation(operationName(path));
+			if (byPath.size() < MAX_PATHS) {
+				byPath.putIfAbsent(path, operation);
+			}
+		}
+		return operation;
+	}
+
+	private String operationName(String path) {
+
+		// the longest configured path the request path starts with
+		Map.Entry<String, String> entry = operationsByPath.floorEntry(path);
+		for (; entry != null; entry = operationsByPath.lowerEntry(entry.getKey())) {
+			String prefix = entry.getKey();
+			if (path.startsWith(prefix) && (path.length() == prefix.length() || path.charAt(prefix.length()) == '/')) {
+				return entry.getValue();
+			}
+		}
+		return OTHER;
+	}
+
+	private Operation operation(String name) {
+		return operations.computeIfAbsent(name, key -> new Operation(registry, key));
+	}
+
+	/**
+	 * Histograms and counters of one OCI operation.
+	 */
+	public static final class Operation {
+
+		private final String name;
+		private final Histogram keyLoad;
+		private final Histogram sign;
+		private final Histogram lease;
+		private final Histogram ttfb;
+		private final Histogram bodyRead;
+		private final Histogram total;
+		private final Counter requestBytes;
+		private final Counter responseBytes;
+		private final Counter networkErrors;
+		private final Counter[] statusClasses = new Counter[4];
+
+		private Operation(MetricRegistry registry, String name) {
+
+			this.name = name;
+			String prefix = "oci." + name + ".";
+			String tags = "operation=" + name;
+			this.keyLoad = registry.histogram(histogram(prefix + "key.load", "Signer lookup of " + name, tags));
+			this.sign = registry.histogram(histogram(prefix + "sign", "Signing of " + name, tags));
+			this.lease = registry
+					.histogram(histogram(prefix + "lease", "Connection lease and connect of " + name, tags));
+			this.ttfb = registry.histogram(histogram(prefix + "ttfb", "Time to the response head of " + name, tags));
+			this.bodyRead = registry.histogram(histogram(prefix + "body.read", "Body read of " + name, tags));
+			this.total = registry.histogram(histogram(prefix + "total", "Whole call of " + name, tags));
+			this.requestBytes = registry.counter(counter(prefix + "request.bytes", MetricUnits.BYTES, tags));
+			this.responseBytes = registry.counter(counter(prefix + "response.bytes", MetricUnits.BYTES, tags));
+			this.networkErrors = registry.counter(counter(prefix + "network.errors", MetricUnits.NONE, tags));
+			for (int i = 0; i < statusClasses.length; i++) {
+				statusClasses[i] = registry
+						.counter(counter(prefix + "status." + (i + 2) + "xx", MetricUnits.NONE, tags));
+			}
+		}
+
+		private static Metadata histogram(String name, String description, String tags) {
+			return new Metadata(name, name, description, MetricType.HISTOGRAM, MetricUnits.MICROSECONDS, tags);
+		}
+
+		private static Metadata counter(String name, String unit, String tags) {
+			return new Metadata(name, name, null, MetricType.COUNTER, unit, tags);
+		}
+
+		private static long micros(long nanos) {
+			return TimeUnit.NANOSECONDS.toMicros(nanos);
+		}
+
+		/**
+		 * @return the {@code restapi.*} key of the operation, or {@code other}
+		 */
+		public String getName() {
+			return name;
+		}
+
+		public void keyLoad(long nanos) {
+			keyLoad.update(micros(nanos));
+		}
+
+		public void sign(long nanos) {
+			sign.update(micros(nanos));
+		}
+
+		public void total(long nanos) {
+			total.update(micros(nanos));
+		}
+
+		/**
+		 * Record an attempt that got a response. Timestamps are
+		 * {@link System#nanoTime()} values; a phase whose end is unknown (0) is
+		 * not recorded.
+		 *
+		 * @param started       the request was handed to the client
+		 * @param connected     a connection was leased and connected
+		 * @param firstByte     the response head arrived
+		 * @param done          the body was read
+		 * @param requestBytes  bytes of the request body
+		 * @param responseBytes bytes of the response body
+		 * @param status        HTTP status code
+		 */
+		public void attempt(long started, long connected, long firstByte, long done, long requestBytes,
+				long responseBytes, int status) {
+
+			if (connected != 0) {
+				lease.update(micros(connected - started));
+				if (firstByte != 0) {
+					ttfb.update(micros(firstByte - connected));
+					bodyRead.update(micros(done - firstByte));
+				}
+			}
+			this.requestBytes.inc(requestBytes);
+			this.responseBytes.inc(responseBytes);
+			int statusClass = status / 100 - 2;
+			if (statusClass >= 0 && statusClass < statusClasses.length) {
+				statusClasses[statusClass].inc();
+			}
+		}
+
+		/**
+		 * Record an attempt that failed without a response.
+		 */
+		public void networkError(long requestBytes) {
+			this.requestBytes.inc(requestBytes);
+			networkErrors.inc();
+		}
+	}
+}
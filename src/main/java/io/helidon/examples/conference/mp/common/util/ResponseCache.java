@@ -0,0 +1,212 @@
+package io.helidon.examples.conference.mp.common.util;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+
+import io.helidon.examples.conference.mp.common.config.OciSettings;
+
+/**
+ * In-memory cache for OCI responses that rarely change.
+ *
+ * <p>
+ * A response is served from the cache for {@code ttl} milliseconds after it
+ * was loaded. For a further {@code stale} milliseconds the cached response is
+ * still served while a single background refresh is started; after that the
+ * entry has expired and callers wait for a new load. Concurrent misses for the
+ * same key share one outbound request. Failed responses, and responses without
+ * a body, are not cached. When the cache holds more than {@code maxEntries} keys, the least
+ * recently used one is evicted.
+ * </p>
+ */
+@ApplicationScoped
+public class ResponseCache {
+
+	private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+	private final long ttl;
+	private final long stale;
+	private final int maxEntries;
+	private final Counter hits;
+	private final Counter misses;
+	private final Counter refreshes;
+
+	/**
+	 * @param ttl        time a response is fresh, in milliseconds
+	 * @param stale      time a response is served stale while it is refreshed, in
+	 *                   milliseconds
+	 * @param maxEntries maximum number of cached keys
+	 * @param registry   registry for the cache hit, miss and refresh counters
+	 */
+	@Inject
+	public ResponseCache(@ConfigProperty(name = "rest.cache.ttl.ms", defaultValue = "30000") long ttl,
+			@ConfigProperty(name = "rest.cache.stale.ms", defaultValue = "60000") long stale,
+			@ConfigProperty(name = "rest.cache.max.entries", defaultValue = "100") int maxEntries,
+			MetricRegistry registry) {
+		this.ttl = ttl;
+		this.stale = stale;
+		this.maxEntries = maxEntries;
+		this.hits = registry.counter("rest.cache.hits");
+		this.misses = registry.counter("rest.cache.misses");
+		this.refreshes = registry.counter("rest.cache.refreshes");
+	}
+
+	/**
+	 * Get the cached response for a key, loading it if needed.
+	 *
+	 * @param key    cache key, for example the request URI
+	 * @param loader starts the outbound request when the response must be loaded
+	 * @return the cached or loaded response
+	 */
+	public CompletionStage<RestResponse> get(String key, Supplier<CompletionStage<RestResponse>> loader) {
+
+		long now = System.currentTimeMillis();
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			Entry created = new Entry(now);
+			entry = entries.putIfAbsent(key, created);
+			if (entry == null) {
+				evictIfFull();
+				misses.inc();
+				return created.load(loader);
+			}
+		}
+		entry.lastAccess = now;
+
+		Cached cached = entry.cached;
+		if (cached != null) {
+			long age = now - cached.loadedAt;
+			if (age < ttl) {
+				hits.inc();
+				return cached.response;
+			}
+			if (age < ttl + stale) {
+				hits.inc();
+				if (entry.start(loader) != null) {
+					refreshes.inc();
+				}
+				return cached.response;
+			}
+		}
+		misses.inc();
+		return entry.load(loader);
+	}
+
+	/**
+	 * Drop all cached responses.
+	 */
+	public void invalidateAll() {
+		entries.clear();
+	}
+
+	/**
+	 * Drop the cached responses when the OCI settings change, as they may have
+	 * been loaded with other credentials or from another endpoint.
+	 */
+	void onSettingsChanged(@Observes OciSettings changed) {
+		invalidateAll();
+	}
+
+	private void evictIfFull() {
+
+		while (entries.size() > maxEntries) {
+			Map.Entry<String, Entry> eldest = null;
+			for (Map.Entry<String, Entry> candidate : entries.entrySet()) {
+				if (eldest == null || candidate.getValue().lastAccess < eldest.getValue().lastAccess) {
+					eldest = candidate;
+				}
+			}
+			if (eldest == null) {
+				return;
+			}
+			entries.remove(eldest.getKey(), eldest.getValue());
+		}
+	}
+
+	private static final class Entry {
+
+		private final AtomicReference<CompletableFuture<RestResponse>> inflight = new AtomicReference<>();
+		private volatile Cached cached;
+		private volatile long lastAccess;
+
+		private Entry(long now) {
+			this.lastAccess = now;
+		}
+
+		/**
+		 * Start a load unless one is already running, and return the running one.
+		 */
+		private CompletableFuture<RestResponse> load(Supplier<CompletionStage<RestResponse>> loader) {
+
+			while (true) {
+				CompletableFuture<RestResponse> running = inflight.get();
+				if (running != null) {
+					return running;
+				}
+				CompletableFuture<RestResponse> started = start(loader);
+				if (started != null) {
+					return started;
+				}
+			}
+		}
+
+		/**
+		 * Start a load if none is running.
+		 *
+		 * @return the started load, or null if another one is already running
+		 */
+		private CompletableFuture<RestResponse> start(Supplier<CompletionStage<RestResponse>> loader) {
+
+			CompletableFuture<RestResponse> result = new CompletableFuture<>();
+			if (!inflight.compareAndSet(null, result)) {
+				return null;
+			}
+
+			CompletionStage<RestResponse> response;
+			try {
+				response = loader.get();
+			} catch (RuntimeException e) {
+				inflight.set(null);
+				result.completeExceptionally(e);
+				return result;
+			}
+			response.whenComplete((value, error) -> {
+				if (error == null && value != null && value.getBody() != null) {
+					cached = new Cached(value, System.currentTimeMillis());
+				}
+				inflight.set(null);
+				if (error != null) {
+					result.completeExceptionally(error);
+				} else {
+					result.complete(value);
+				}
+			});
+			return result;
+		}
+	}
+
+	/**
+	 * A loaded response, kept as a completed stage so hits do not allocate.
+	 */
+	private static final class Cached {
+
+		private final CompletableFuture<RestResponse> response;
+		private final long loadedAt;
+
+		private Cached(RestResponse value, long loadedAt) {
+			this.response = CompletableFuture.completedFuture(value);
+			this.loadedAt = loadedAt;
+		}
+	}
+}
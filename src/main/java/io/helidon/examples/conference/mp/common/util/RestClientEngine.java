@@ -0,0 +1,235 @@
+package io.helidon.examples.conference.mp.common.util;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.annotation.Gauge;
+
+/**
+ * Application wide outbound HTTP engine used by {@link RestUtil}.
+ *
+ * <p>
+ * A single pooled {@link HttpClient} is shared by all outbound calls so that
+ * TLS sessions and connections to the OCI endpoints are reused instead of being
+ * negotiated on every request. Idle and expired connections are evicted by a
+ * background thread, and the pool is closed when the application shuts down.
+ * </p>
+ *
+ * <p>
+ * Asynchronous calls run on a dedicated, bounded executor so that slow OCI
+ * calls never occupy the server's request threads. When both its threads and
+ * its queue are exhausted new calls are rejected instead of piling up.
+ * </p>
+ *
+ * <p>
+ * Responses that stream OCI results are resumed on a separate pool: writing
+ * them may wait for slow clients and for further pages, and doing so on an
+ * executor thread could starve the calls loading those very pages.
+ * </p>
+ */
+@ApplicationScoped
+public class RestClientEngine {
+
+	/**
+	 * Context attribute holding the {@link System#nanoTime()} at which the
+	 * request was sent on a leased and connected connection.
+	 */
+	public static final String CONNECTED_AT = "rest.client.connected.at";
+
+	/**
+	 * Context attribute holding the {@link System#nanoTime()} at which the
+	 * response head was received.
+	 */
+	public static final String FIRST_BYTE_AT = "rest.client.first.byte.at";
+
+	private static final Logger LOGGER = Logger.getLogger(RestClientEngine.class.getName());
+
+	private final PoolingHttpClientConnectionManager connectionManager;
+	private final CloseableHttpClient httpClient;
+	private final ThreadPoolExecutor executor;
+	private final ThreadPoolExecutor responseExecutor;
+	private final ScheduledExecutorService scheduler;
+
+	/**
+	 * Create the engine, reading the pool settings from configuration.
+	 *
+	 * @param maxTotal        maximum number of pooled connections
+	 * @param maxPerRoute     maximum number of pooled connections per route
+	 * @param connectTimeout  connect timeout in milliseconds
+	 * @param readTimeout     socket read timeout in milliseconds
+	 * @param leaseTimeout    maximum time to wait for a pooled connection in
+	 *                        milliseconds
+	 * @param idleTimeout     idle time after which a pooled connection is
+	 *                        evicted in milliseconds
+	 * @param keepAlive       keep-alive used when the server does not send one
+	 *                        in milliseconds
+	 * @param asyncThreads    number of threads running asynchronous calls
+	 * @param asyncQueue      number of asynchronous calls allowed to wait for a
+	 *                        thread
+	 * @param responseThreads number of threads resuming and writing
+	 *                        asynchronous responses
+	 * @param responseQueue   number of asynchronous responses allowed to wait
+	 *                        for a thread
+	 */
+	@Inject
+	public RestClientEngine(@ConfigProperty(name = "rest.client.pool.max.total", defaultValue = "50") int maxTotal,
+			@ConfigProperty(name = "rest.client.pool.max.per.route", defaultValue = "20") int maxPerRoute,
+			@ConfigProperty(name = "rest.client.connect.timeout.ms", defaultValue = "5000") int connectTimeout,
+			@ConfigProperty(name = "rest.client.read.timeout.ms", defaultValue = "30000") int readTimeout,
+			@ConfigProperty(name = "rest.client.lease.timeout.ms", defaultValue = "2000") int leaseTimeout,
+			@ConfigProperty(name = "rest.client.idle.timeout.ms", defaultValue = "30000") long idleTimeout,
+			@ConfigProperty(name = "rest.client.keepalive.ms", defaultValue = "60000") long keepAlive,
+			@ConfigProperty(name = "rest.client.async.threads", defaultValue = "16") int asyncThreads,
+			@ConfigProperty(name = "rest.client.async.queue", defaultValue = "100") int asyncQueue,
+			@ConfigProperty(name = "rest.client.response.threads", defaultValue = "16") int responseThreads,
+			@ConfigProperty(name = "rest.client.response.queue", defaultValue = "100") int responseQueue) {
+
+		this.connectionManager = new PoolingHttpClientConnectionManager();
+		this.connectionManager.setMaxTotal(maxTotal);
+		this.connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+
+		RequestConfig requestConfig = RequestConfig.custom().setConnectTimeout(connectTimeout)
+				.setSocketTimeout(readTimeout).setConnectionRequestTimeout(leaseTimeout).build();
+
+		this.httpClient = HttpClientBuilder.create().setConnectionManager(connectionManager)
+				.setDefaultRequestConfig(requestConfig).setKeepAliveStrategy(keepAliveStrategy(keepAlive))
+				.setRequestExecutor(new TimingRequestExecutor())
+				// retries are left to RetryPolicy, which is budgeted
+				.disableAutomaticRetries().evictExpiredConnections()
+				.evictIdleConnections(idleTimeout, TimeUnit.MILLISECONDS).build();
+
+		this.executor = new ThreadPoolExecutor(asyncThreads, asyncThreads, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(asyncQueue), threadFactory("rest-client-"));
+		this.executor.allowCoreThreadTimeOut(true);
+		this.responseExecutor = new ThreadPoolExecutor(responseThreads, responseThreads, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(responseQueue), threadFactory("rest-response-"));
+		this.responseExecutor.allowCoreThreadTimeOut(true);
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory("rest-client-timer-"));
+	}
+
+	private static ThreadFactory threadFactory(String prefix) {
+		AtomicInteger counter = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/**
+	 * Records when a request leaves the connection pool and when its response
+	 * head arrives, as {@link #CONNECTED_AT} and {@link #FIRST_BYTE_AT}.
+	 */
+	private static final class TimingRequestExecutor extends HttpRequestExecutor {
+
+		@Override
+		public HttpResponse execute(HttpRequest request, HttpClientConnection conn, HttpContext context)
+				throws IOException, HttpException {
+			context.setAttribute(CONNECTED_AT, System.nanoTime());
+			HttpResponse response = super.execute(request, conn, context);
+			context.setAttribute(FIRST_BYTE_AT, System.nanoTime());
+			return response;
+		}
+	}
+
+	/**
+	 * Honour the keep-alive sent by the server, falling back to the configured
+	 * value when there is none.
+	 */
+	private static ConnectionKeepAliveStrategy keepAliveStrategy(long keepAlive) {
+		return (response, context) -> {
+			long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+			return duration > 0 ? duration : keepAlive;
+		};
+	}
+
+	/**
+	 * @return the shared, pooled client
+	 */
+	public HttpClient client() {
+		return httpClient;
+	}
+
+	/**
+	 * @return the bounded executor running asynchronous calls
+	 */
+	public ExecutorService executor() {
+		return executor;
+	}
+
+	/**
+	 * @return the bounded executor resuming asynchronous responses whose
+	 *         writing may block, never the threads of {@link #executor()} or
+	 *         {@link #scheduler()}
+	 */
+	public ExecutorService responseExecutor() {
+		return responseExecutor;
+	}
+
+	/**
+	 * @return the timer for timeouts and delayed calls; its tasks must not block
+	 */
+	public ScheduledExecutorService scheduler() {
+		return scheduler;
+	}
+
+	@Gauge(name = "rest.client.pool.leased", unit = MetricUnits.NONE, absolute = true, description = "Connections currently leased from the outbound pool")
+	public int getLeased() {
+		return stats().getLeased();
+	}
+
+	@Gauge(name = "rest.client.pool.available", unit = MetricUnits.NONE, absolute = true, description = "Idle connections kept alive in the outbound pool")
+	public int getAvailable() {
+		return stats().getAvailable();
+	}
+
+	@Gauge(name = "rest.client.pool.pending", unit = MetricUnits.NONE, absolute = true, description = "Requests waiting for a connection from the outbound pool")
+	public int getPending() {
+		return stats().getPending();
+	}
+
+	private PoolStats stats() {
+		return connectionManager.getTotalStats();
+	}
+
+	@PreDestroy
+	void close() {
+		scheduler.shutdownNow();
+		executor.shutdownNow();
+		responseExecutor.shutdownNow();
+		try {
+			httpClient.close();
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Failed to close the REST client", e);
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package io.helidon.examples.conference.mp.common.util;
+
+import java.io.IOException;
+import java.util.Date;
+
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.utils.DateUtils;
+
+/**
+ * Outcome, status, body and paging headers of an OCI REST response, or the
+ * I/O error that prevented one.
+ */
+public class RestResponse {
+
+	/**
+	 * What a call came to, so callers can tell a throttle from a failure.
+	 */
+	public enum Outcome {
+		/**
+		 * A 2xx response.
+		 */
+		SUCCESS,
+		/**
+		 * A 429 response: the request was not processed and may be sent again
+		 * later, after {@link RestResponse#getRetryAfter()} if given.
+		 */
+		THROTTLED,
+		/**
+		 * A 502, 503 or 504 response: the service is temporarily unavailable.
+		 */
+		UNAVAILABLE,
+		/**
+		 * Any other 4xx response: sending the request again will not help.
+		 */
+		CLIENT_ERROR,
+		/**
+		 * Any other response.
+		 */
+		SERVER_ERROR,
+		/**
+		 * No response, the request failed with an I/O error.
+		 */
+		NETWORK_ERROR;
+
+		static Outcome of(int status) {
+			if (status >= 200 && status < 300) {
+				return SUCCESS;
+			}
+			if (status == 429) {
+				return THROTTLED;
+			}
+			if (status == 502 || status == 503 || status == 504) {
+				return UNAVAILABLE;
+			}
+			return status >= 400 && status < 500 ? CLIENT_ERROR : SERVER_ERROR;
+		}
+	}
+
+	/**
+	 * Header carrying the token of the next page of a list operation.
+	 */
+	public static final String NEXT_PAGE_HEADER = "opc-next-page";
+
+	/**
+	 * Header carrying the OCI request id, needed when contacting support.
+	 */
+	public static final String REQUEST_ID_HEADER = "opc-request-id";
+
+	private final Outcome outcome;
+	private final int status;
+	private final String body;
+	private final String nextPage;
+	private final String requestId;
+	private final long retryAfter;
+	private final String error;
+
+	RestResponse(HttpResponse response, String body) {
+		this.status = response.getStatusLine().getStatusCode();
+		this.outcome = Outcome.of(status);
+		this.body = body;
+		this.nextPage = headerValue(response, NEXT_PAGE_HEADER);
+		this.requestId = headerValue(response, REQUEST_ID_HEADER);
+		this.retryAfter = retryAfter(headerValue(response, HttpHeaders.RETRY_AFTER));
+		this.error = null;
+	}
+
+	RestResponse(IOException error) {
+		this.outcome = Outcome.NETWORK_ERROR;
+		this.status = 0;
+		this.body = null;
+		this.nextPage = null;
+		this.requestId = null;
+		this.retryAfter = -1;
+		this.error = error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+	}
+
+	private static String headerValue(HttpResponse response, String name) {
+		Header header = response.getFirstHeader(name);
+		return header == null ? null : header.getValue();
+	}
+
+	/**
+	 * Parse a {@code Retry-After} value, either delay seconds or an HTTP date.
+	 *
+	 * @return the delay in milliseconds, or -1 if there is none
+	 */
+	private static long retryAfter(String value) {
+
+		if (value == null) {
+			return -1;
+		}
+		try {
+			return Math.max(0, Long.parseLong(value.trim()) * 1000);
+		} catch (NumberFormatException e) {
+			Date date = DateUtils.parseDate(value);
+			return date == null ? -1 : Math.max(0, date.getTime() - System.currentTimeMillis());
+		}
+	}
+
+	/**
+	 * @return what the call came to
+	 */
+	public Outcome getOutcome() {
+		return outcome;
+	}
+
+	/**
+	 * @return true for a 2xx response
+	 */
+	public boolean isSuccess() {
+		return outcome == Outcome.SUCCESS;
+	}
+
+	/**
+	 * @return the HTTP status code, or 0 if there was no response
+	 */
+	public int getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return the response body for 200 and 202 responses, otherwise null
+	 */
+	public String getBody() {
+		return body;
+	}
+
+	/**
+	 * @return the token of the next page, or null on the last page
+	 */
+	public String getNextPage() {
+		return nextPage;
+	}
+
+	/**
+	 * @return the OCI request id, or null if the response had none
+	 */
+	public String getRequestId() {
+		return requestId;
+	}
+
+	/**
+	 * @return the delay asked for by a {@code Retry-After} header in
+	 *         milliseconds, or -1 if there was none
+	 */
+	public long getRetryAfter() {
+		return retryAfter;
+	}
+
+	/**
+	 * @return the message of the I/O error for a {@link Outcome#NETWORK_ERROR},
+	 *         otherwise null
+	 */
+	public String getError() {
+		return error;
+	}
+
+	@Override
+	public String toString() {
+		if (outcome == Outcome.NETWORK_ERROR) {
+			return outcome + ": " + error;
+		}
+		return outcome + ", status " + status + (requestId == null ? "" : ", request id " + requestId);
+	}
+}
@@ -1,159 +1,206 @@
 package io.helidon.examples.conference.mp.common.util;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.UnsupportedEncodingException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.security.PrivateKey;
-import java.security.spec.InvalidKeySpecException;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
 import javax.json.JsonObject;
 
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
-import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPatch;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.HttpEntityWrapper;
 import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.util.EntityUtils;
-import org.tomitribe.auth.signatures.PEM;
 
+import io.helidon.examples.conference.mp.common.util.ConcurrencyLimiter.Permit;
+import io.helidon.examples.conference.mp.common.util.OutboundMetrics.Operation;
 import io.helidon.examples.conference.mp.common.util.Signing.RequestSigner;
-
+import io.opentracing.Scope;
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import io.opentracing.tag.Tags;
+
+/**
+ * Signed REST calls against the OCI APIs, executed through the shared
+ * {@link RestClientEngine}. Each call has an asynchronous variant that signs
+ * and executes the request on the engine's bounded executor. Requests run
+ * within the adaptive {@link ConcurrencyLimiters#oci() OCI concurrency limit}
+ * and are retried as the {@link RetryPolicy} allows; the
+ * {@link RestResponse#getOutcome() outcome} of the last attempt tells a
+ * throttle from a failure. Every phase of a call is recorded in the
+ * {@link OutboundMetrics} of its OCI operation, and the signing and every
+ * attempt get a span, a child of the span active when the call was made; the
+ * attempts carry its context in their trace headers.
+ */
+@ApplicationScoped
 public class RestUtil {
 
-	public static String RestGet(String apiKey, String privateKeyFilename, String uri) {
+	private static final Logger LOGGER = Logger.getLogger(RestUtil.class.getName());
+
+	private final RestClientEngine engine;
+	private final SignerRegistry signers;
+	private final ConcurrencyLimiters limiters;
+	private final RetryPolicy retryPolicy;
+	private final OutboundMetrics metrics;
+	private final Tracer tracer;
+
+	@Inject
+	public RestUtil(RestClientEngine engine, SignerRegistry signers, ConcurrencyLimiters limiters,
+			RetryPolicy retryPolicy, OutboundMetrics metrics, Tracer tracer) {
+		this.engine = engine;
+		this.signers = signers;
+		this.limiters = limiters;
+		this.retryPolicy = retryPolicy;
+		this.metrics = metrics;
+		this.tracer = tracer;
+	}
 
-		try {
-			HttpRequestBase request;
+	/**
+	 * @return the body of a 200 or 202 response, otherwise null
+	 */
+	public String RestGet(String apiKey, String privateKeyFilename, String uri) {
 
-			// This is the keyId for a key uploaded through the console
-			PrivateKey privateKey = loadPrivateKey(privateKeyFilename);
-			RequestSigner signer = new RequestSigner(apiKey, privateKey);
+		return send(() -> get(apiKey, privateKeyFilename, uri)).getBody();
+	}
 
-			request = new HttpGet(uri);
-			signer.signRequest(request);
+	/**
+	 * GET one page of a list operation, keeping the paging headers.
+	 *
+	 * @return the response, or the network error if there was none
+	 */
+	public RestResponse RestGetPage(String apiKey, String privateKeyFilename, String uri) {
 
-			HttpClient httpClient = HttpClientBuilder.create().build();
+		return send(() -> get(apiKey, privateKeyFilename, uri));
+	}
 
-			HttpResponse response = httpClient.execute(request);
-			if (HttpStatus.SC_OK == response.getStatusLine().getStatusCode()
-					|| HttpStatus.SC_ACCEPTED == response.getStatusLine().getStatusCode()) {
-				HttpEntity responseEntity = response.getEntity();
-				if (responseEntity != null) {
-					return EntityUtils.toString(responseEntity);
-				}
-			}
-		} catch (IOException e) {
-			e.printStackTrace();
-			return null;
-		}
+	public String RestPost(String apiKey, String privateKeyFilename, String uri, byte[] bodyByte) {
 
-		return null;
+		return send(() -> post(apiKey, privateKeyFilename, uri, bodyByte)).getBody();
 	}
 
-	public static String RestPost(String apiKey, String privateKeyFilename, String uri, byte[] bodyByte) {
+	public String RestPut(String apiKey, String privateKeyFilename, String uri, byte[] bodyByte) {
 
-		try {
-			HttpRequestBase request;
+		return send(() -> put(apiKey, privateKeyFilename, uri, bodyByte)).getBody();
+	}
 
-			// This is the keyId for a key uploaded through the console
-			PrivateKey privateKey = loadPrivateKey(privateKeyFilename);
-			RequestSigner signer = new RequestSigner(apiKey, privateKey);
+	public String RestDelete(String apiKey, String privateKeyFilename, String uri) {
 
-			request = new HttpPost(uri);
-			HttpEntity entity = new ByteArrayEntity(bodyByte);
-			((HttpPost) request).setEntity(entity);
-			signer.signRequest(request);
-			request.removeHeaders("content-length");
+		return send(() -> delete(apiKey, privateKeyFilename, uri)).getBody();
+	}
 
-			HttpClient httpClient = HttpClientBuilder.create().build();
-			HttpResponse response = httpClient.execute(request);
+	public CompletionStage<String> RestGetAsync(String apiKey, String privateKeyFilename, String uri) {
 
-			if (HttpStatus.SC_OK == response.getStatusLine().getStatusCode()
-					|| HttpStatus.SC_ACCEPTED == response.getStatusLine().getStatusCode()) {
-				HttpEntity responseEntity = response.getEntity();
-				if (responseEntity != null) {
-					return EntityUtils.toString(responseEntity);
-				}
-			}
-		} catch (IOException e) {
-			e.printStackTrace();
-			return null;
-		}
+		return sendAsync(() -> get(apiKey, privateKeyFilename, uri)).thenApply(RestResponse::getBody);
+	}
 
-		return null;
+	public CompletionStage<RestResponse> RestGetPageAsync(String apiKey, String privateKeyFilename, String uri) {
+
+		return sendAsync(() -> get(apiKey, privateKeyFilename, uri));
 	}
 
-	public static String RestPut(String apiKey, String privateKeyFilename, String uri, byte[] bodyByte) {
+	public CompletionStage<String> RestPostAsync(String apiKey, String privateKeyFilename, String uri,
+			byte[] bodyByte) {
 
-		try {
-			HttpRequestBase request;
+		return sendAsync(() -> post(apiKey, privateKeyFilename, uri, bodyByte)).thenApply(RestResponse::getBody);
+	}
 
-			// This is the keyId for a key uploaded through the console
-			PrivateKey privateKey = loadPrivateKey(privateKeyFilename);
-			RequestSigner signer = new RequestSigner(apiKey, privateKey);
+	public CompletionStage<String> RestPutAsync(String apiKey, String privateKeyFilename, String uri,
+			byte[] bodyByte) {
 
-			request = new HttpPut(uri);
-			signer.signRequest(request);
+		return sendAsync(() -> put(apiKey, privateKeyFilename, uri, bodyByte)).thenApply(RestResponse::getBody);
+	}
 
-			HttpClient httpClient = HttpClientBuilder.create().build();
-			HttpResponse response = httpClient.execute(request);
+	public CompletionStage<String> RestDeleteAsync(String apiKey, String privateKeyFilename, String uri) {
 
-			if (HttpStatus.SC_OK == response.getStatusLine().getStatusCode()
-					|| HttpStatus.SC_ACCEPTED == response.getStatusLine().getStatusCode()) {
-				HttpEntity responseEntity = response.getEntity();
-				if (responseEntity != null) {
-					return EntityUtils.toString(responseEntity);
-				}
-			}
-		} catch (IOException e) {
-			e.printStackTrace();
-			return null;
-		}
+		return sendAsync(() -> delete(apiKey, privateKeyFilename, uri)).thenApply(RestResponse::getBody);
+	}
+
+	private HttpRequestBase get(String apiKey, String privateKeyFilename, String uri) {
 
-		return null;
+		HttpRequestBase request = new HttpGet(uri);
+		sign(apiKey, privateKeyFilename, request);
+		return request;
 	}
 
-	public static String RestDelete(String apiKey, String privateKeyFilename, String uri) {
+	private HttpRequestBase post(String apiKey, String privateKeyFilename, String uri, byte[] bodyByte) {
 
+		HttpPost request = new HttpPost(uri);
+		HttpEntity entity = new ByteArrayEntity(bodyByte);
+		request.setEntity(entity);
+		sign(apiKey, privateKeyFilename, request);
+		request.removeHeaders("content-length");
+		return request;
+	}
+
+	private HttpRequestBase put(String apiKey, String privateKeyFilename, String uri, byte[] bodyByte) {
+
+		HttpPut request = new HttpPut(uri);
+		HttpEntity entity = new ByteArrayEntity(bodyByte);
+		request.setEntity(entity);
+		sign(apiKey, privateKeyFilename, request);
+		request.removeHeaders("content-length");
+		return request;
+	}
+
+	private HttpRequestBase delete(String apiKey, String privateKeyFilename, String uri) {
+
+		HttpRequestBase request = new HttpDelete(uri);
+		sign(apiKey, privateKeyFilename, request);
+		return request;
+	}
+
+	/**
+	 * Sign a request in an {@code oci-sign} span, timing the signer lookup and
+	 * the signing separately.
+	 */
+	private void sign(String apiKey, String privateKeyFilename, HttpRequestBase request) {
+
+		Operation operation = metrics.operation(request);
+		Span span = tracer.buildSpan("oci-sign").withTag(Tracing.OPERATION, operation.getName()).start();
 		try {
-			HttpRequestBase request;
+			long started = System.nanoTime();
 
 			// This is the keyId for a key uploaded through the console
-			PrivateKey privateKey = loadPrivateKey(privateKeyFilename);
-			RequestSigner signer = new RequestSigner(apiKey, privateKey);
+			RequestSigner signer = signers.get(apiKey, privateKeyFilename);
+			long loaded = System.nanoTime();
+			span.log("signer loaded");
 
-			request = new HttpDelete(uri);
 			signer.signRequest(request);
-
-			HttpClient httpClient = HttpClientBuilder.create().build();
-			HttpResponse response = httpClient.execute(request);
-
-			if (HttpStatus.SC_OK == response.getStatusLine().getStatusCode()
-					|| HttpStatus.SC_ACCEPTED == response.getStatusLine().getStatusCode()) {
-				HttpEntity responseEntity = response.getEntity();
-				if (responseEntity != null) {
-					return EntityUtils.toString(responseEntity);
-				}
-			}
-		} catch (IOException e) {
-			e.printStackTrace();
-			return null;
+			operation.keyLoad(loaded - started);
+			operation.sign(System.nanoTime() - loaded);
+		} catch (RuntimeException e) {
+			Tracing.error(span, e);
+			throw e;
+		} finally {
+			span.finish();
 		}
-
-		return null;
 	}
 
-	public static String[] RestHeaders(String apiKey, String privateKeyFilename, String method, String uri,
+	public String[] RestHeaders(String apiKey, String privateKeyFilename, String method, String uri,
 			JsonObject jsonObject) {
 
 		String[] httpHeaders = new String[] { "", "", "", "", "" };
@@ -161,8 +208,7 @@ public class RestUtil {
 		HttpRequestBase request;
 
 		// This is the keyId for a key uploaded through the console
-		PrivateKey privateKey = loadPrivateKey(privateKeyFilename);
-		RequestSigner signer = new RequestSigner(apiKey, privateKey);
+		RequestSigner signer = signers.get(apiKey, privateKeyFilename);
 
 		if (method.equals("get")) {
 			request = new HttpGet(uri);
@@ -183,7 +229,7 @@ public class RestUtil {
 
 		signer.signRequest(request);
 
-		httpHeaders[0] = request.getFirstHeader("x-date").getValue();
+		httpHeaders[0] = request.getFirstHeader("date").getValue();
 		httpHeaders[1] = request.getFirstHeader("Authorization").getValue();
 		if (method.equals("post") || method.equals("put") || method.equals("patch")) {
 			httpHeaders[2] = request.getFirstHeader("x-content-sha256").getValue();
@@ -194,14 +240,289 @@ public class RestUtil {
 		return httpHeaders;
 	}
 
-	private static PrivateKey loadPrivateKey(String privateKeyFilename) {
+	/**
+	 * Execute a signed request on the pooled client. The response entity is
+	 * always consumed so that the connection is released back to the pool.
+	 *
+	 * <p>
+	 * The attempt runs within a slot of the OCI concurrency limit, which the
+	 * caller has already taken, so that executor threads never wait for the
+	 * limiter. The slot is released when the attempt ends; timeouts and
+	 * overload responses lower the limit, the latency of the others adapts it.
+	 * </p>
+	 *
+	 * <p>
+	 * The attempt is traced in an {@code oci-request} span whose context is
+	 * sent in the trace headers.
+	 * </p>
+	 *
+	 * @param attempt number of the attempt, starting at 1
+	 * @param permit  slot of the OCI concurrency limit held by the attempt
+	 * @return the response, with a body for 200 and 202 responses only
+	 */
+	private RestResponse execute(HttpRequestBase request, int attempt, Permit permit) throws IOException {
+
+		Operation operation = metrics.operation(request);
+		Span span = Tracing.startClientSpan(tracer, "oci-request", null, "oci");
+		Tags.HTTP_METHOD.set(span, request.getMethod());
+		Tags.HTTP_URL.set(span, request.getURI().toString());
+		span.setTag(Tracing.OPERATION, operation.getName());
+		span.setTag(Tracing.ATTEMPT, attempt);
+		try {
+			return execute(request, operation, span, permit);
+		} catch (IOException | RuntimeException e) {
+			// releases the slot if the attempt failed before it was sent
+			permit.ignore();
+			Tracing.error(span, e);
+			throw e;
+		} finally {
+			span.finish();
+		}
+	}
 
-		try (InputStream privateKeyStream = Files.newInputStream(Paths.get(privateKeyFilename))) {
-			return PEM.readPrivateKey(privateKeyStream);
-		} catch (InvalidKeySpecException e) {
-			throw new RuntimeException("Invalid format for private key");
+	private RestResponse execute(HttpRequestBase request, Operation operation, Span span, Permit permit)
+			throws IOException {
+
+		long requestBytes = requestBytes(request);
+		span.setTag(Tracing.REQUEST_BYTES, requestBytes);
+		Tracing.inject(tracer, span, request::setHeader);
+		HttpClientContext context = HttpClientContext.create();
+		long started = System.nanoTime();
+		HttpResponse response;
+		try {
+			response = engine.client().execute(request, context);
+		} catch (InterruptedIOException e) {
+			operation.networkError(requestBytes);
+			permit.dropped();
+			throw e;
 		} catch (IOException e) {
-			throw new RuntimeException("Failed to load private key");
+			operation.networkError(requestBytes);
+			permit.ignore();
+			throw e;
+		} catch (RuntimeException e) {
+			permit.ignore();
+			throw e;
+		}
+		CountingEntity responseEntity = response.getEntity() == null ? null : new CountingEntity(response.getEntity());
+		try {
+			String body = null;
+			if (HttpStatus.SC_OK == response.getStatusLine().getStatusCode()
+					|| HttpStatus.SC_ACCEPTED == response.getStatusLine().getStatusCode()) {
+				if (responseEntity != null) {
+					body = EntityUtils.toString(responseEntity);
+				}
+			}
+			return new RestResponse(response, body);
+		} catch (InterruptedIOException e) {
+			permit.dropped();
+			throw e;
+		} finally {
+			EntityUtils.consumeQuietly(responseEntity);
+			int status = response.getStatusLine().getStatusCode();
+			long responseBytes = responseEntity == null ? 0 : responseEntity.bytes;
+			operation.attempt(started, nanoTime(context, RestClientEngine.CONNECTED_AT),
+					nanoTime(context, RestClientEngine.FIRST_BYTE_AT), System.nanoTime(), requestBytes,
+					responseBytes, status);
+			tagResponse(span, response, status, responseBytes);
+			if (ConcurrencyLimiter.isOverload(status)) {
+				permit.dropped();
+			} else {
+				permit.success();
+			}
+		}
+	}
+
+	private static void tagResponse(Span span, HttpResponse response, int status, long responseBytes) {
+
+		Tags.HTTP_STATUS.set(span, status);
+		if (status >= HttpStatus.SC_BAD_REQUEST) {
+			Tags.ERROR.set(span, true);
+		}
+		Header requestId = response.getFirstHeader(RestResponse.REQUEST_ID_HEADER);
+		if (requestId != null) {
+			span.setTag(Tracing.REQUEST_ID, requestId.getValue());
+		}
+		span.setTag(Tracing.RESPONSE_BYTES, responseBytes);
+	}
+
+	private static long nanoTime(HttpClientContext context, String attribute) {
+		Long value = context.getAttribute(attribute, Long.class);
+		return value == null ? 0 : value;
+	}
+
+	private static long requestBytes(HttpRequestBase request) {
+		if (request instanceof HttpEntityEnclosingRequest) {
+			HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+			return entity == null ? 0 : Math.max(0, entity.getContentLength());
+		}
+		return 0;
+	}
+
+	/**
+	 * Counts the bytes of a response body as they are read.
+	 */
+	private static final class CountingEntity extends HttpEntityWrapper {
+
+		private long bytes;
+
+		private CountingEntity(HttpEntity entity) {
+			super(entity);
+		}
+
+		@Override
+		public InputStream getContent() throws IOException {
+			return new FilterInputStream(super.getContent()) {
+
+				@Override
+				public int read() throws IOException {
+					int read = super.read();
+					if (read >= 0) {
+						bytes++;
+					}
+					return read;
+				}
+
+				@Override
+				public int read(byte[] buffer, int offset, int length) throws IOException {
+					int read = super.read(buffer, offset, length);
+					if (read > 0) {
+						bytes += read;
+					}
+					return read;
+				}
+			};
+		}
+	}
+
+	/**
+	 * Complete with the result of {@code stage}, or with a
+	 * {@link TimeoutException} if it takes longer than {@code timeoutMillis}.
+	 * The call behind {@code stage} is not cancelled; it still ends within the
+	 * client read timeout.
+	 */
+	public <T> CompletableFuture<T> withTimeout(CompletionStage<T> stage, long timeoutMillis) {
+
+		CompletableFuture<T> result = new CompletableFuture<>();
+		ScheduledFuture<?> timeout = engine.scheduler().schedule(
+				() -> result.completeExceptionally(new TimeoutException("Timed out after " + timeoutMillis + " ms")),
+				timeoutMillis, TimeUnit.MILLISECONDS);
+		stage.whenComplete((value, error) -> {
+			timeout.cancel(false);
+			if (error != null) {
+				result.completeExceptionally(error);
+			} else {
+				result.complete(value);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Sign and send a request, retrying it as the {@link RetryPolicy} allows.
+	 * The calling thread waits for the slot of each attempt and sleeps between
+	 * attempts.
+	 *
+	 * @return the last response, or the last network error
+	 * @throws RejectedExecutionException if the concurrency limit rejected an
+	 *                                    attempt
+	 */
+	private RestResponse send(Supplier<HttpRequestBase> signedRequest) {
+
+		long started = System.nanoTime();
+		HttpRequestBase request = signedRequest.get();
+		for (int attempt = 1;; attempt++) {
+			RestResponse response = attempt(request, attempt, limiters.oci().acquireBlocking());
+			long delay = retryPolicy.delay(request, response, attempt);
+			if (delay < 0) {
+				metrics.operation(request).total(System.nanoTime() - started);
+				return response;
+			}
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return response;
+			}
+		}
+	}
+
+	/**
+	 * Sign and send a request on the engine's executor, retrying it as the
+	 * {@link RetryPolicy} allows. Each attempt is handed to the executor only
+	 * once it has a slot of the OCI concurrency limit, and the delays between
+	 * attempts run on the engine's timer, so no thread waits for either. A
+	 * request rejected because the executor is saturated or by the concurrency
+	 * limit completes the returned stage exceptionally.
+	 */
+	private CompletionStage<RestResponse> sendAsync(Supplier<HttpRequestBase> signedRequest) {
+
+		AsyncCall call = new AsyncCall(signedRequest);
+		call.submit();
+		return call.result;
+	}
+
+	private RestResponse attempt(HttpRequestBase request, int attempt, Permit permit) {
+
+		try {
+			request.reset();
+			return execute(request, attempt, permit);
+		} catch (IOException e) {
+			LOGGER.log(Level.FINE, "OCI request failed: " + request.getRequestLine(), e);
+			return new RestResponse(e);
+		}
+	}
+
+	/**
+	 * The attempts of one asynchronous request. Each attempt runs on the
+	 * executor; the request is signed by the first one and reused by the
+	 * others. The span active when the call was made is their parent.
+	 */
+	private final class AsyncCall {
+
+		private final CompletableFuture<RestResponse> result = new CompletableFuture<>();
+		private final long started = System.nanoTime();
+		private final Span parent = tracer.activeSpan();
+		private final Supplier<HttpRequestBase> signedRequest;
+		private HttpRequestBase request;
+		private int attempts;
+
+		private AsyncCall(Supplier<HttpRequestBase> signedRequest) {
+			this.signedRequest = signedRequest;
+		}
+
+		private void submit() {
+			limiters.oci().acquire().whenComplete((permit, error) -> {
+				if (error != null) {
+					result.completeExceptionally(error);
+					return;
+				}
+				try {
+					engine.executor().execute(() -> run(permit));
+				} catch (RejectedExecutionException e) {
+					permit.ignore();
+					result.completeExceptionally(e);
+				}
+			});
+		}
+
+		private void run(Permit permit) {
+			try (Scope scope = Tracing.activate(tracer, parent)) {
+				if (request == null) {
+					request = signedRequest.get();
+				}
+				attempts++;
+				RestResponse response = attempt(request, attempts, permit);
+				long delay = retryPolicy.delay(request, response, attempts);
+				if (delay < 0) {
+					metrics.operation(request).total(System.nanoTime() - started);
+					result.complete(response);
+				} else {
+					engine.scheduler().schedule(this::submit, delay, TimeUnit.MILLISECONDS);
+				}
+			} catch (RuntimeException e) {
+				permit.ignore();
+				result.completeExceptionally(e);
+			}
 		}
 	}
 
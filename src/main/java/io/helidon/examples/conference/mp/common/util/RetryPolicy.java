@@ -0,0 +1,119 @@
+package io.helidon.examples.conference.mp.common.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.apache.http.client.methods.HttpRequestBase;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+
+import io.helidon.examples.conference.mp.common.util.RestResponse.Outcome;
+
+/**
+ * Decides whether, and when, {@link RestUtil} sends an OCI request again.
+ *
+ * <p>
+ * A throttled request ({@code 429}) was not processed and is always retried.
+ * An unavailable service ({@code 502}, {@code 503}, {@code 504}) or a network
+ * error is retried only for idempotent methods, as the first attempt may have
+ * taken effect. The delay before attempt {@code n + 1} is drawn uniformly
+ * between zero and {@code baseDelay * 2^(n - 1)}, capped at {@code maxDelay}
+ * ("full jitter"). It is never shorter than the server's {@code Retry-After},
+ * and a request whose {@code Retry-After} exceeds {@code maxDelay} is not
+ * retried.
+ * </p>
+ *
+ * <p>
+ * Retries are paid from a {@link TokenBucket}, so they cannot amplify an
+ * outage: every request adds {@code budgetRatio} of a token, up to
+ * {@code budgetMax}, and every retry takes a whole one. With the default ratio, retries add at
+ * most about 10% to the traffic once the initial tokens are spent.
+ * </p>
+ */
+@ApplicationScoped
+public class RetryPolicy {
+
+	private final int maxAttempts;
+	private final long baseDelay;
+	private final long maxDelay;
+	private final TokenBucket budget;
+	private final Counter retries;
+	private final Counter exhausted;
+
+	/**
+	 * @param maxAttempts maximum number of attempts per request, including the
+	 *                    first one
+	 * @param baseDelay   upper bound of the delay before the first retry, in
+	 *                    milliseconds
+	 * @param maxDelay    upper bound of any delay, in milliseconds
+	 * @param budgetRatio tokens added to the budget by every request
+	 * @param budgetMax   maximum number of tokens in the budget
+	 * @param registry    registry for the retry and exhausted budget counters
+	 */
+	@Inject
+	public RetryPolicy(@ConfigProperty(name = "rest.retry.max.attempts", defaultValue = "3") int maxAttempts,
+			@ConfigProperty(name = "rest.retry.base.delay.ms", defaultValue = "100") long baseDelay,
+			@ConfigProperty(name = "rest.retry.max.delay.ms", defaultValue = "5000") long maxDelay,
+			@ConfigProperty(name = "rest.retry.budget.ratio", defaultValue = "0.1") double budgetRatio,
+			@ConfigProperty(name = "rest.retry.budget.max", defaultValue = "10") int budgetMax,
+			MetricRegistry registry) {
+		this.maxAttempts = maxAttempts;
+		this.baseDelay = baseDelay;
+		this.maxDelay = maxDelay;
+		this.budget = new TokenBucket(budgetRatio, budgetMax);
+		this.retries = registry.counter("rest.retry.attempts");
+		this.exhausted = registry.counter("rest.retry.budget.exhausted");
+	}
+
+	/**
+	 * Decide about the next attempt of a request. Must be called once after
+	 * every attempt, as the first one pays into the retry budget.
+	 *
+	 * @param request  the sent request
+	 * @param response the outcome of the attempt
+	 * @param attempt  number of the attempt, starting at 1
+	 * @return the delay before the next attempt in milliseconds, or -1 if the
+	 *         request must not be sent again
+	 */
+	public long delay(HttpRequestBase request, RestResponse response, int attempt) {
+
+		if (attempt == 1) {
+			budget.deposit();
+		}
+		if (attempt >= maxAttempts || !retryable(request, response.getOutcome())) {
+			return -1;
+		}
+		long retryAfter = response.getRetryAfter();
+		if (retryAfter > maxDelay) {
+			return -1;
+		}
+		if (!budget.tryTake()) {
+			exhausted.inc();
+			return -1;
+		}
+		retries.inc();
+		long bound = Math.min(maxDelay, baseDelay << Math.min(attempt - 1, 30));
+		return Math.max(retryAfter, ThreadLocalRandom.current().nextLong(bound + 1));
+	}
+
+	private static boolean retryable(HttpRequestBase request, Outcome outcome) {
+
+		switch (outcome) {
+		case THROTTLED:
+			return true;
+		case UNAVAILABLE:
+		case NETWORK_ERROR:
+			return idempotent(request.getMethod());
+		default:
+			return false;
+		}
+	}
+
+	private static boolean idempotent(String method) {
+		return "GET".equals(method) || "HEAD".equals(method) || "PUT".equals(method) || "DELETE".equals(method)
+				|| "OPTIONS".equals(method);
+	}
+}
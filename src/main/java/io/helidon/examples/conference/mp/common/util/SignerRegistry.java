@@ -0,0 +1,204 @@
+package io.helidon.examples.conference.mp.common.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.PrivateKey;
+import java.security.spec.InvalidKeySpecException;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.tomitribe.auth.signatures.PEM;
+
+import io.helidon.examples.conference.mp.common.config.OciSettings;
+import io.helidon.examples.conference.mp.common.util.Signing.RequestSigner;
+
+/**
+ * Registry of {@link RequestSigner}s keyed by apiKey and private key file.
+ *
+ * <p>
+ * The PEM file is read and parsed once per (apiKey, key file) pair and the
+ * resulting signer is shared by all threads. An entry is rebuilt when the
+ * modification time of its key file changes; the file is checked at most once
+ * per check interval. Registering a new apiKey for a key file, or a new key file
+ * for an apiKey, drops the superseded entry, so changing the
+ * {@code fingerprint} or {@code private.pem} configuration does not leave stale
+ * signers behind.
+ * </p>
+ */
+@ApplicationScoped
+public class SignerRegistry {
+
+	private static final Logger LOGGER = Logger.getLogger(SignerRegistry.class.getName());
+
+	private final ConcurrentMap<SignerKey, Entry> signers = new ConcurrentHashMap<>();
+	private final long checkInterval;
+
+	/**
+	 * @param checkInterval minimum time between two modification time checks of
+	 *                      a key file, in milliseconds
+	 */
+	@Inject
+	public SignerRegistry(
+			@ConfigProperty(name = "signer.registry.check.interval.ms", defaultValue = "1000") long checkInterval) {
+		this.checkInterval = checkInterval;
+	}
+
+	/**
+	 * Build the OCI apiKey ("tenancy/user/fingerprint") used as the signature
+	 * keyId.
+	 */
+	public static String apiKey(String tenancyOcid, String userOcid, String fingerprint) {
+		return tenancyOcid + "/" + userOcid + "/" + fingerprint;
+	}
+
+	/**
+	 * Get the signer for an apiKey and private key file, loading the key if it is
+	 * not registered yet or if the file changed since it was loaded.
+	 *
+	 * @param apiKey             The identifier for a key uploaded through the
+	 *                           console.
+	 * @param privateKeyFilename location of the private key matching the apiKey
+	 * @return a thread-safe signer
+	 */
+	public RequestSigner get(String apiKey, String privateKeyFilename) {
+
+		SignerKey key = new SignerKey(apiKey, privateKeyFilename);
+		Entry entry = signers.get(key);
+		long now = System.currentTimeMillis();
+		if (entry != null && now < entry.nextCheck) {
+			return entry.signer;
+		}
+
+		long lastModified = lastModified(key.path);
+		if (entry != null && entry.lastModified == lastModified) {
+			entry.nextCheck = now + checkInterval;
+			return entry.signer;
+		}
+
+		Entry current = signers.compute(key, (k, existing) -> {
+			if (existing != null && existing.lastModified == lastModified) {
+				return existing;
+			}
+			return new Entry(new RequestSigner(k.apiKey, loadPrivateKey(k.path)), lastModified,
+					now + checkInterval);
+		});
+		if (entry == null) {
+			signers.keySet().removeIf(k -> k.supersededBy(key));
+		}
+		return current.signer;
+	}
+
+	/**
+	 * Drop all registered signers, forcing keys to be reloaded on next use.
+	 */
+	public void invalidateAll() {
+		signers.clear();
+	}
+
+	/**
+	 * Drop the signers when the OCI settings change, so keys are read again from
+	 * the configured file.
+	 */
+	void onSettingsChanged(@Observes OciSettings changed) {
+		invalidateAll();
+	}
+
+	/**
+	 * Optionally load the configured signer at startup, so the first OCI call
+	 * does not pay for reading and parsing the key.
+	 */
+	void prewarm(@Observes @Initialized(ApplicationScoped.class) Object event, Config config) {
+
+		if (!config.getOptionalValue("signer.registry.prewarm", Boolean.class).orElse(false)) {
+			return;
+		}
+		try {
+			String apiKey = apiKey(config.getValue("tenancy.ocid", String.class),
+					config.getValue("user.ocid", String.class), config.getValue("fingerprint", String.class));
+			get(apiKey, config.getValue("private.pem", String.class));
+		} catch (RuntimeException e) {
+			LOGGER.log(Level.WARNING, "Failed to pre-warm request signer", e);
+		}
+	}
+
+	private static long lastModified(Path path) {
+		try {
+			return Files.getLastModifiedTime(path).toMillis();
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to load private key");
+		}
+	}
+
+	private static PrivateKey loadPrivateKey(Path privateKeyFile) {
+
+		try (InputStream privateKeyStream = Files.newInputStream(privateKeyFile)) {
+			return PEM.readPrivateKey(privateKeyStream);
+		} catch (InvalidKeySpecException e) {
+			throw new RuntimeException("Invalid format for private key");
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to load private key");
+		}
+	}
+
+	private static final class SignerKey {
+
+		private final String apiKey;
+		private final Path path;
+
+		private SignerKey(String apiKey, String privateKeyFilename) {
+			this.apiKey = apiKey;
+			this.path = Paths.get(privateKeyFilename);
+		}
+
+		/**
+		 * @return true if this key shares its apiKey or key file with another key,
+		 *         meaning the configuration moved on to the other one
+		 */
+		private boolean supersededBy(SignerKey other) {
+			return !equals(other) && (apiKey.equals(other.apiKey) || path.equals(other.path));
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof SignerKey)) {
+				return false;
+			}
+			SignerKey other = (SignerKey) o;
+			return apiKey.equals(other.apiKey) && path.equals(other.path);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(apiKey, path);
+		}
+	}
+
+	private static final class Entry {
+
+		private final RequestSigner signer;
+		private final long lastModified;
+		private volatile long nextCheck;
+
+		private Entry(RequestSigner signer, long lastModified, long nextCheck) {
+			this.signer = signer;
+			this.lastModified = lastModified;
+			this.nextCheck = nextCheck;
+		}
+	}
+}
@@ -3,23 +3,28 @@ package io.helidon.examples.conference.mp.common.util;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
+import java.security.SignatureException;
 import java.security.spec.InvalidKeySpecException;
-import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.Base64;
-import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.TimeZone;
-import java.util.stream.Collectors;
 
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
 import org.apache.http.client.methods.HttpGet;
@@ -30,11 +35,9 @@ import org.apache.http.entity.StringEntity;
 import org.tomitribe.auth.signatures.MissingRequiredHeaderException;
 import org.tomitribe.auth.signatures.PEM;
 import org.tomitribe.auth.signatures.Signature;
-import org.tomitribe.auth.signatures.Signer;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.hash.Hashing;
 
 /**
  * @version 1.0.1
@@ -115,12 +118,13 @@ public class Signing {
 	 * A light wrapper around https://github.com/tomitribe/http-signatures-java
 	 */
 	public static class RequestSigner {
-		private static final SimpleDateFormat DATE_FORMAT;
+		private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter
+				.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
 		private static final String SIGNATURE_ALGORITHM = "rsa-sha256";
+		private static final String JVM_SIGNATURE_ALGORITHM = "SHA256withRSA";
+		private static final String REQUEST_TARGET = "(request-target)";
 		private static final Map<String, List<String>> REQUIRED_HEADERS;
 		static {
-			DATE_FORMAT = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
-			DATE_FORMAT.setTimeZone(TimeZone.getTimeZone("GMT"));
 			REQUIRED_HEADERS = ImmutableMap.<String, List<String>>builder()
 					.put("get", ImmutableList.of("date", "(request-target)", "host"))
 					.put("head", ImmutableList.of("date", "(request-target)", "host"))
@@ -132,31 +136,40 @@ public class Signing {
 							"x-content-sha256"))
 					.build();
 		}
-		private final Map<String, Signer> signers;
-
 		/**
-		 * @param apiKey     The identifier for a key uploaded through the console.
-		 * @param privateKey The private key that matches the uploaded public key for
-		 *                   the given apiKey.
+		 * The formatted date header, refreshed at most once per second.
 		 */
-		public RequestSigner(String apiKey, Key privateKey) {
-			this.signers = REQUIRED_HEADERS.entrySet().stream().collect(Collectors.toMap(entry -> entry.getKey(),
-					entry -> buildSigner(apiKey, privateKey, entry.getKey())));
-		}
+		private static volatile CachedDate cachedDate = new CachedDate(System.currentTimeMillis() / 1000);
+
+		private final Map<String, SigningTemplate> templates;
+		private final ThreadLocal<java.security.Signature> rsa;
 
 		/**
-		 * Create a {@link Signer} that expects the headers for a given method.
-		 * 
 		 * @param apiKey     The identifier for a key uploaded through the console.
 		 * @param privateKey The private key that matches the uploaded public key for
 		 *                   the given apiKey.
-		 * @param method     HTTP verb for this signer
-		 * @return
 		 */
-		protected Signer buildSigner(String apiKey, Key privateKey, String method) {
-			final Signature signature = new Signature(apiKey, SIGNATURE_ALGORITHM, null,
-					REQUIRED_HEADERS.get(method.toLowerCase()));
-			return new Signer(privateKey, signature);
+		public RequestSigner(String apiKey, Key privateKey) {
+			if (!(privateKey instanceof PrivateKey)) {
+				throw new IllegalArgumentException("Expected a private key for " + SIGNATURE_ALGORITHM);
+			}
+			ImmutableMap.Builder<String, SigningTemplate> builder = ImmutableMap.builder();
+			REQUIRED_HEADERS.forEach((method, headers) -> {
+				SigningTemplate template = new SigningTemplate(apiKey, method, headers);
+				// HttpRequestBase reports upper case methods, register both spellings
+				builder.put(method, template);
+				builder.put(method.toUpperCase(Locale.ROOT), template);
+			});
+			this.templates = builder.build();
+			this.rsa = ThreadLocal.withInitial(() -> {
+				try {
+					java.security.Signature signature = java.security.Signature.getInstance(JVM_SIGNATURE_ALGORITHM);
+					signature.initSign((PrivateKey) privateKey);
+					return signature;
+				} catch (GeneralSecurityException e) {
+					throw new RuntimeException("Failed to initialize " + SIGNATURE_ALGORITHM + " signature", e);
+				}
+			});
 		}
 
 		/**
@@ -173,15 +186,15 @@ public class Signing {
 		 * @param request The request to sign
 		 */
 		public void signRequest(HttpRequestBase request) {
-			final String method = request.getMethod().toLowerCase();
+			final String method = request.getMethod();
 			// nothing to sign for options
-			if (method.equals("options")) {
+			if (method.equalsIgnoreCase("options")) {
 				return;
 			}
-			final String path = extractPath(request.getURI());
+			final SigningTemplate template = templateFor(method);
 			// supply date if missing
 			if (!request.containsHeader("date")) {
-				request.addHeader("date", DATE_FORMAT.format(new Date()));
+				request.addHeader("date", currentDate());
 			}
 			// supply host if mossing
 			if (!request.containsHeader("host")) {
@@ -189,23 +202,22 @@ public class Signing {
 			}
 			// supply content-type, content-length, and x-content-sha256 if missing (PUT and
 			// POST only)
-			if (method.equals("put") || method.equals("post")) {
+			if (template.hasBody) {
 				if (!request.containsHeader("content-type")) {
 					request.addHeader("content-type", "application/json");
 				}
 				if (!request.containsHeader("content-length") || !request.containsHeader("x-content-sha256")) {
-					byte[] body = getRequestBody((HttpEntityEnclosingRequestBase) request);
+					BodyDigest body = digestRequestBody((HttpEntityEnclosingRequestBase) request);
 					if (!request.containsHeader("content-length")) {
-						request.addHeader("content-length", Integer.toString(body.length));
+						request.addHeader("content-length", Long.toString(body.length));
 					}
 					if (!request.containsHeader("x-content-sha256")) {
-						request.addHeader("x-content-sha256", calculateSHA256(body));
+						request.addHeader("x-content-sha256", body.sha256());
 					}
 				}
 			}
-			final Map<String, String> headers = extractHeadersToSign(request);
-			final String signature = this.calculateSignature(method, path, headers);
-			request.setHeader("Authorization", signature);
+			final String signingString = template.signingString(request);
+			request.setHeader("Authorization", template.authorization(sign(signingString)));
 		}
 
 //		public void signHttpRequest(HttpRequestBase request, HttpRequest httpRequest) {
@@ -252,112 +264,223 @@ public class Signing {
 //		}
 
 		/**
-		 * Extract path and query string to build the (request-target) pseudo-header.
-		 * For the URI "http://www.host.com/somePath?foo=bar" return "/somePath?foo=bar"
+		 * Append path and query string to build the (request-target) pseudo-header.
+		 * For the URI "http://www.host.com/somePath?foo=bar" append "/somePath?foo=bar"
 		 */
-		private static String extractPath(URI uri) {
-			String path = uri.getRawPath();
+		private static void appendPath(StringBuilder target, URI uri) {
+			target.append(uri.getRawPath());
 			String query = uri.getRawQuery();
 			if (query != null && !query.trim().isEmpty()) {
-				path = path + "?" + query;
+				target.append('?').append(query);
 			}
-			return path;
 		}
 
 		/**
-		 * Extract the headers required for signing from a {@link HttpRequestBase}, into
-		 * a Map that can be passed to {@link RequestSigner#calculateSignature}.
-		 *
-		 * <p>
-		 * Throws if a required header is missing, or if there are multiple values for a
-		 * single header.
-		 * </p>
-		 *
-		 * @param request The request to extract headers from.
+		 * The current time formatted for the date header. The value only changes once
+		 * per second, so it is formatted once and shared by all requests signed within
+		 * that second.
 		 */
-		private static Map<String, String> extractHeadersToSign(HttpRequestBase request) {
-			List<String> headersToSign = REQUIRED_HEADERS.get(request.getMethod().toLowerCase());
-			if (headersToSign == null) {
-				throw new RuntimeException("Don't know how to sign method " + request.getMethod());
+		static String currentDate() {
+			long now = System.currentTimeMillis() / 1000;
+			CachedDate date = cachedDate;
+			if (date.epochSecond != now) {
+				date = new CachedDate(now);
+				cachedDate = date;
 			}
-			return headersToSign.stream()
-					// (request-target) is a pseudo-header
-					.filter(header -> !header.toLowerCase().equals("(request-target)"))
-					.collect(Collectors.toMap(header -> header, header -> {
-
-//						if ("content-length".contentEquals(header)) {
-//							return "";
-//						}
-
-						if (!request.containsHeader(header)) {
-							throw new MissingRequiredHeaderException(header);
-						}
-						if (request.getHeaders(header).length > 1) {
-							throw new RuntimeException(String.format("Expected one value for header %s", header));
-						}
-
-						return request.getFirstHeader(header).getValue();
-					}));
+			return date.value;
 		}
 
-		/**
-		 * Wrapper around {@link Signer#sign}, returns the {@link Signature} as a
-		 * String.
-		 *
-		 * @param method  Request method (GET, POST, ...)
-		 * @param path    The path + query string for forming the (request-target)
-		 *                pseudo-header
-		 * @param headers Headers to include in the signature.
-		 */
-		private String calculateSignature(String method, String path, Map<String, String> headers) {
-			Signer signer = this.signers.get(method);
-			if (signer == null) {
-				throw new RuntimeException("Don't know how to sign method " + method);
+		private SigningTemplate templateFor(String method) {
+			SigningTemplate template = templates.get(method);
+			if (template == null) {
+				template = templates.get(method.toLowerCase(Locale.ROOT));
 			}
-			try {
-				return signer.sign(method, path, headers).toString();
-			} catch (IOException e) {
-				throw new RuntimeException("Failed to generate signature", e);
+			if (template == null) {
+				throw new RuntimeException("Don't know how to sign method " + method);
 			}
+			return template;
 		}
 
 		/**
-		 * Calculate the Base64-encoded string representing the SHA256 of a request body
-		 * 
-		 * @param body The request body to hash
+		 * Sign the signing string with this thread's RSA {@link java.security.Signature},
+		 * returning the Base64-encoded signature.
 		 */
-		private String calculateSHA256(byte[] body) {
-			byte[] hash = Hashing.sha256().hashBytes(body).asBytes();
-			return Base64.getEncoder().encodeToString(hash);
+		private String sign(String signingString) {
+			java.security.Signature signature = rsa.get();
+			try {
+				signature.update(signingString.getBytes(StandardCharsets.UTF_8));
+				return Base64.getEncoder().encodeToString(signature.sign());
+			} catch (SignatureException e) {
+				// the instance is in an unknown state, start over with a fresh one
+				rsa.remove();
+				throw new RuntimeException("Failed to generate signature", e);
+			}
 		}
 
 		/**
-		 * Helper to safely extract a request body. Because an {@link HttpEntity} may
-		 * not be repeatable, this function ensures the entity is reset after reading.
-		 * Null entities are treated as an empty string.
+		 * Helper to hash and measure a request body in a single pass. The entity is
+		 * streamed through the digest, so repeatable entities are never copied: a
+		 * {@link ByteArrayEntity} hands its backing array straight to the digest, and
+		 * file or stream backed entities are read through their own fixed-size
+		 * buffer. Because a non-repeatable {@link HttpEntity} can only be read once,
+		 * its content is captured while hashing and the request entity is replaced by
+		 * that copy. Null entities are treated as an empty string.
 		 *
 		 * @param request A request with a (possibly null) {@link HttpEntity}
 		 */
-		private byte[] getRequestBody(HttpEntityEnclosingRequestBase request) {
+		private BodyDigest digestRequestBody(HttpEntityEnclosingRequestBase request) {
 			HttpEntity entity = request.getEntity();
 			// null body is equivalent to an empty string
 			if (entity == null) {
-				return "".getBytes(StandardCharsets.UTF_8);
+				return new BodyDigest(null);
 			}
 			// May need to replace the request entity after consuming
 			boolean consumed = !entity.isRepeatable();
-			ByteArrayOutputStream content = new ByteArrayOutputStream();
+			BodyDigest body = new BodyDigest(consumed ? new ReplayBuffer() : null);
 			try {
-				entity.writeTo(content);
+				entity.writeTo(body);
 			} catch (IOException e) {
 				throw new RuntimeException("Failed to copy request body", e);
 			}
-			// Replace the now-consumed body with a copy of the content stream
-			byte[] body = content.toByteArray();
+			// Replace the now-consumed body with the captured content
 			if (consumed) {
-				request.setEntity(new ByteArrayEntity(body));
+				request.setEntity(body.copy.toEntity(entity));
 			}
 			return body;
 		}
+
+		/**
+		 * Output stream computing the SHA-256 and length of everything written to it,
+		 * optionally keeping a copy of the content.
+		 */
+		private static final class BodyDigest extends OutputStream {
+			private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+				try {
+					return MessageDigest.getInstance("SHA-256");
+				} catch (NoSuchAlgorithmException e) {
+					throw new IllegalStateException(e);
+				}
+			});
+
+			private final MessageDigest digest = SHA256.get();
+			private final ReplayBuffer copy;
+			private long length;
+
+			private BodyDigest(ReplayBuffer copy) {
+				this.copy = copy;
+				this.digest.reset();
+			}
+
+			@Override
+			public void write(int b) {
+				digest.update((byte) b);
+				if (copy != null) {
+					copy.write(b);
+				}
+				length++;
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+				digest.update(b, off, len);
+				if (copy != null) {
+					copy.write(b, off, len);
+				}
+				length += len;
+			}
+
+			/**
+			 * @return the Base64-encoded SHA-256 of the content written so far
+			 */
+			private String sha256() {
+				return Base64.getEncoder().encodeToString(digest.digest());
+			}
+		}
+
+		/**
+		 * Growable buffer that hands its backing array to the replacement entity
+		 * instead of copying it once more.
+		 */
+		private static final class ReplayBuffer extends ByteArrayOutputStream {
+
+			private HttpEntity toEntity(HttpEntity original) {
+				ByteArrayEntity entity = new ByteArrayEntity(buf, 0, count);
+				entity.setContentType(original.getContentType());
+				entity.setContentEncoding(original.getContentEncoding());
+				return entity;
+			}
+		}
+
+		/**
+		 * Formatted date header for one epoch second.
+		 */
+		private static final class CachedDate {
+			private final long epochSecond;
+			private final String value;
+
+			private CachedDate(long epochSecond) {
+				this.epochSecond = epochSecond;
+				this.value = DATE_FORMAT.format(Instant.ofEpochSecond(epochSecond));
+			}
+		}
+
+		/**
+		 * Precomputed signing data for one HTTP method: the headers to sign, in
+		 * order, and the constant part of the Authorization header.
+		 */
+		private static final class SigningTemplate {
+			private final String[] headers;
+			private final String[] prefixes;
+			private final String authorizationPrefix;
+			private final boolean hasBody;
+
+			private SigningTemplate(String apiKey, String method, List<String> headers) {
+				this.headers = headers.toArray(new String[0]);
+				this.prefixes = new String[this.headers.length];
+				for (int i = 0; i < this.headers.length; i++) {
+					this.prefixes[i] = REQUEST_TARGET.equals(this.headers[i]) ? REQUEST_TARGET + ": " + method + " "
+							: this.headers[i] + ": ";
+				}
+				String signature = new Signature(apiKey, SIGNATURE_ALGORITHM, "", headers).toString();
+				// everything but the trailing quote of the empty signature value
+				this.authorizationPrefix = signature.substring(0, signature.length() - 1);
+				this.hasBody = headers.contains("x-content-sha256");
+			}
+
+			/**
+			 * Build the signing string for a request.
+			 *
+			 * <p>
+			 * Throws if a required header is missing, or if there are multiple values for
+			 * a single header.
+			 * </p>
+			 */
+			private String signingString(HttpRequestBase request) {
+				StringBuilder signingString = new StringBuilder(256);
+				for (int i = 0; i < headers.length; i++) {
+					if (i > 0) {
+						signingString.append('\n');
+					}
+					signingString.append(prefixes[i]);
+					if (REQUEST_TARGET.equals(headers[i])) {
+						appendPath(signingString, request.getURI());
+						continue;
+					}
+					Header header = request.getFirstHeader(headers[i]);
+					if (header == null) {
+						throw new MissingRequiredHeaderException(headers[i]);
+					}
+					if (header != request.getLastHeader(headers[i])) {
+						throw new RuntimeException(String.format("Expected one value for header %s", headers[i]));
+					}
+					signingString.append(header.getValue());
+				}
+				return signingString.toString();
+			}
+
+			private String authorization(String signature) {
+				return authorizationPrefix + signature + '"';
+			}
+		}
 	}
 }
@@ -0,0 +1,61 @@
+package io.helidon.examples.conference.mp.common.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Budget for extra work, such as retries or hedged requests, proportional to
+ * the regular traffic.
+ *
+ * <p>
+ * Every regular request {@link #deposit() deposits} {@code ratio} of a token,
+ * up to {@code max} tokens, and every unit of extra work {@link #tryTake()
+ * takes} a whole one, so the extra work stays below {@code ratio} of the
+ * traffic once the initial tokens are spent. The bucket starts full.
+ * </p>
+ */
+public final class TokenBucket {
+
+	/**
+	 * Tokens are kept in thousandths, so deposits can be fractional.
+	 */
+	private static final long TOKEN = 1000;
+
+	private final long deposit;
+	private final long capacity;
+	private final AtomicLong tokens;
+
+	/**
+	 * @param ratio tokens deposited by every regular request
+	 * @param max   maximum number of tokens in the bucket
+	 */
+	public TokenBucket(double ratio, int max) {
+		this.deposit = (long) (ratio * TOKEN);
+		this.capacity = max * TOKEN;
+		this.tokens = new AtomicLong(capacity);
+	}
+
+	/**
+	 * Record a regular request.
+	 */
+	public void deposit() {
+		tokens.accumulateAndGet(deposit, (current, added) -> Math.min(capacity, current + added));
+	}
+
+	/**
+	 * Take a token for extra work.
+	 *
+	 * @return false if the budget is spent
+	 */
+	public boolean tryTake() {
+
+		while (true) {
+			long current = tokens.get();
+			if (current < TOKEN) {
+				return false;
+			}
+			if (tokens.compareAndSet(current, current - TOKEN)) {
+				return true;
+			}
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package io.helidon.examples.conference.mp.common.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import io.opentracing.Scope;
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import io.opentracing.log.Fields;
+import io.opentracing.propagation.Format;
+import io.opentracing.propagation.TextMapInjectAdapter;
+import io.opentracing.tag.Tags;
+
+/**
+ * Helpers for the client spans of outbound calls.
+ *
+ * <p>
+ * Calls often run on executor or timer threads, where no span is active. The
+ * span that is active when a call starts, usually the span of the inbound
+ * request, is therefore captured on the calling thread and
+ * {@link #activate(Tracer, Span) activated} again where the call runs, so
+ * that the spans of all its attempts are its children.
+ * </p>
+ */
+public final class Tracing {
+
+	/**
+	 * Tag naming the OCI operation, as in {@link OutboundMetrics}.
+	 */
+	public static final String OPERATION = "oci.operation";
+
+	/**
+	 * Tag holding the {@code opc-request-id} of an OCI response.
+	 */
+	public static final String REQUEST_ID = "oci.request_id";
+
+	/**
+	 * Tag holding the number of the attempt, starting at 1.
+	 */
+	public static final String ATTEMPT = "retry.attempt";
+
+	/**
+	 * Tags holding the bytes of the request and response bodies.
+	 */
+	public static final String REQUEST_BYTES = "http.request.bytes";
+	public static final String RESPONSE_BYTES = "http.response.bytes";
+
+	private Tracing() {
+	}
+
+	/**
+	 * Start a client span.
+	 *
+	 * @param parent parent of the span; if null, the active span is
+	 */
+	public static Span startClientSpan(Tracer tracer, String name, Span parent, String component) {
+
+		Tracer.SpanBuilder builder = tracer.buildSpan(name).withTag(Tags.SPAN_KIND.getKey(), Tags.SPAN_KIND_CLIENT)
+				.withTag(Tags.COMPONENT.getKey(), component);
+		if (parent != null) {
+			builder.asChildOf(parent);
+		}
+		return builder.start();
+	}
+
+	/**
+	 * Make a span the active one of the current thread until the returned scope
+	 * is closed; the span is not finished then.
+	 *
+	 * @return the scope, or null if there is no span
+	 */
+	public static Scope activate(Tracer tracer, Span span) {
+		return span == null ? null : tracer.scopeManager().activate(span, false);
+	}
+
+	/**
+	 * Write the context of a span as HTTP headers.
+	 *
+	 * @param header sets one header, replacing the value of a previous attempt
+	 */
+	public static void inject(Tracer tracer, Span span, BiConsumer<String, String> header) {
+
+		Map<String, String> headers = new HashMap<>();
+		tracer.inject(span.context(), Format.Builtin.HTTP_HEADERS, new TextMapInjectAdapter(headers));
+		headers.forEach(header);
+	}
+
+	/**
+	 * Mark a span as failed by an exception.
+	 */
+	public static void error(Span span, Throwable error) {
+
+		Tags.ERROR.set(span, true);
+		Map<String, Object> fields = new HashMap<>();
+		fields.put(Fields.EVENT, "error");
+		fields.put(Fields.ERROR_OBJECT, error);
+		span.log(fields);
+	}
+}
@@ -0,0 +1,41 @@
+package io.helidon.examples.conference.mp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+
+class GreetManangerTest {
+
+	@Test
+	void propertiesAreNotComparedAgainWithinTheInterval() {
+
+		GreetMananger manager = new GreetMananger(4, 60000);
+		Properties properties = new Properties();
+		properties.setProperty("a", "1");
+		PropertiesSnapshot first = manager.update(properties);
+		properties.setProperty("a", "2");
+
+		assertSame(first, manager.update(properties));
+		assertEquals("1", manager.getSnapshot().entries().get("a"));
+		assertEquals(0, manager.getHistory(1).size());
+	}
+
+	@Test
+	void changesAreRecordedOnceTheIntervalPassed() throws Exception {
+
+		GreetMananger manager = new GreetMananger(4, 1);
+		Properties properties = new Properties();
+		properties.setProperty("a", "1");
+		manager.update(properties);
+		properties.setProperty("a", "2");
+		Thread.sleep(5);
+
+		PropertiesSnapshot changed = manager.update(properties);
+		assertEquals(2, changed.version());
+		assertEquals("2", changed.entries().get("a"));
+		assertEquals(1, manager.getHistory(1).size());
+	}
+}
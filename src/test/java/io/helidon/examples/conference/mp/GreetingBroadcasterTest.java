@@ -0,0 +1,234 @@
+package io.helidon.examples.conference.mp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseBroadcaster;
+import javax.ws.rs.sse.SseEventSink;
+
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.helidon.metrics.RegistryFactory;
+
+class GreetingBroadcasterTest {
+
+	private GreetingBroadcaster broadcaster;
+	private final Sse sse = new TestSse();
+	private final TestSink sink = new TestSink();
+
+	@BeforeEach
+	void setUp() {
+		broadcaster = new GreetingBroadcaster(16, false, 60000, 1,
+				RegistryFactory.create().getRegistry(MetricRegistry.Type.APPLICATION));
+	}
+
+	@AfterEach
+	void tearDown() {
+		broadcaster.close();
+	}
+
+	@Test
+	void changeWhileReadingTheCurrentGreetingIsNotLost() throws Exception {
+
+		GreetingTemplate read = new GreetingTemplate(1, "Hello");
+		broadcaster.subscribe(sink, sse, () -> {
+			// the greeting changes after it was read, before it is offered
+			broadcaster.onGreetingChanged(new GreetingTemplate(2, "Hi"));
+			return read;
+		}, null);
+		broadcaster.onGreetingChanged(new GreetingTemplate(3, "Howdy"));
+
+		assertEquals(Arrays.asList("2", "3"), sink.awaitIds(2));
+	}
+
+	@Test
+	void olderChangeIsNotSentAfterANewerOne() throws Exception {
+
+		broadcaster.subscribe(sink, sse, () -> new GreetingTemplate(1, "Hello"), null);
+		broadcaster.onGreetingChanged(new GreetingTemplate(3, "Howdy"));
+		broadcaster.onGreetingChanged(new GreetingTemplate(2, "Hi"));
+		broadcaster.onGreetingChanged(new GreetingTemplate(4, "Hey"));
+
+		assertEquals(Arrays.asList("1", "3", "4"), sink.awaitIds(3));
+	}
+
+	@Test
+	void currentGreetingIsSkippedWhenTheClientHasIt() throws Exception {
+
+		broadcaster.subscribe(sink, sse, () -> new GreetingTemplate(1, "Hello"), "1");
+		broadcaster.onGreetingChanged(new GreetingTemplate(2, "Hi"));
+
+		assertEquals(Arrays.asList("2"), sink.awaitIds(1));
+	}
+
+	/**
+	 * Records the ids of the events sent; the heartbeat is too slow to show up.
+	 */
+	private static final class TestSink implements SseEventSink {
+
+		private final List<String> ids = new ArrayList<>();
+		private volatile boolean closed;
+
+		/**
+		 * Wait for a number of events. Events are sent in order, so any event
+		 * queued before the last expected one has been sent by then.
+		 */
+		synchronized List<String> awaitIds(int count) throws InterruptedException {
+
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+			while (ids.size() < count && System.nanoTime() < deadline) {
+				wait(10);
+			}
+			assertTrue(ids.size() >= count, "sent " + ids);
+			return new ArrayList<>(ids);
+		}
+
+		@Override
+		public boolean isClosed() {
+			return closed;
+		}
+
+		@Override
+		public synchronized CompletionStage<?> send(OutboundSseEvent event) {
+			ids.add(event.getId());
+			notifyAll();
+			return CompletableFuture.completedFuture(null);
+		}
+
+		@Override
+		public void close() {
+			closed = true;
+		}
+	}
+
+	private static final class TestSse implements Sse {
+
+		@Override
+		public OutboundSseEvent.Builder newEventBuilder() {
+			return new TestEvent();
+		}
+
+		@Override
+		public SseBroadcaster newBroadcaster() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * An event that is its own builder; only the id and comment are kept.
+	 */
+	private static final class TestEvent implements OutboundSseEvent, OutboundSseEvent.Builder {
+
+		private String id;
+		private String comment;
+
+		@Override
+		public OutboundSseEvent.Builder id(String id) {
+			this.id = id;
+			return this;
+		}
+
+		@Override
+		public OutboundSseEvent.Builder name(String name) {
+			return this;
+		}
+
+		@Override
+		public OutboundSseEvent.Builder reconnectDelay(long milliseconds) {
+			return this;
+		}
+
+		@Override
+		public OutboundSseEvent.Builder mediaType(MediaType mediaType) {
+			return this;
+		}
+
+		@Override
+		public OutboundSseEvent.Builder comment(String comment) {
+			this.comment = comment;
+			return this;
+		}
+
+		@Override
+		@SuppressWarnings("rawtypes")
+		public OutboundSseEvent.Builder data(Class type, Object data) {
+			return this;
+		}
+
+		@Override
+		@SuppressWarnings("rawtypes")
+		public OutboundSseEvent.Builder data(GenericType type, Object data) {
+			return this;
+		}
+
+		@Override
+		public OutboundSseEvent.Builder data(Object data) {
+			return this;
+		}
+
+		@Override
+		public OutboundSseEvent build() {
+			return this;
+		}
+
+		@Override
+		public String getId() {
+			return id;
+		}
+
+		@Override
+		public String getName() {
+			return null;
+		}
+
+		@Override
+		public String getComment() {
+			return comment;
+		}
+
+		@Override
+		public long getReconnectDelay() {
+			return RECONNECT_NOT_SET;
+		}
+
+		@Override
+		public boolean isReconnectDelaySet() {
+			return false;
+		}
+
+		@Override
+		public Class<?> getType() {
+			return null;
+		}
+
+		@Override
+		public Type getGenericType() {
+			return null;
+		}
+
+		@Override
+		public MediaType getMediaType() {
+			return null;
+		}
+
+		@Override
+		public Object getData() {
+			return null;
+		}
+	}
+}
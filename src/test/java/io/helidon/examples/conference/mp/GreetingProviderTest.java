@@ -0,0 +1,38 @@
+package io.helidon.examples.conference.mp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class GreetingProviderTest {
+
+	@Test
+	void leastRecentlyUsedTenantIsEvicted() {
+
+		GreetingProvider provider = new GreetingProvider("Hello", 10, 2);
+		provider.setLocaleMessage("a", "fr", "Salut");
+		provider.setLocaleMessage("b", "fr", "Bonjour");
+		assertEquals("Salut", provider.getTemplate("fr", "a").message());
+
+		provider.setLocaleMessage("c", "fr", "Coucou");
+
+		assertEquals(Arrays.asList("a", "c"), new ArrayList<>(provider.getTenantTemplates().keySet()));
+	}
+
+	@Test
+	void removingAGreetingKeepsTheTenantRecency() {
+
+		GreetingProvider provider = new GreetingProvider("Hello", 10, 2);
+		provider.setLocaleMessage("a", "fr", "Salut");
+		provider.setLocaleMessage("a", "de", "Hallo");
+		provider.setLocaleMessage("b", "fr", "Bonjour");
+		provider.removeLocaleMessage("a", "de");
+
+		provider.setLocaleMessage("c", "fr", "Coucou");
+
+		assertEquals(Arrays.asList("b", "c"), new ArrayList<>(provider.getTenantTemplates().keySet()));
+	}
+}
@@ -0,0 +1,48 @@
+package io.helidon.examples.conference.mp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class GreetingTemplateTest {
+
+	@Test
+	void usersGetDifferentTags() {
+
+		GreetingTemplate template = new GreetingTemplate(1, "Hello");
+
+		assertNotEquals(template.etag("alice"), template.etag("bob"));
+		assertNotEquals(template.etag("World", " (security: ", "alice", ")"),
+				template.etag("World", " (security: ", "bob", ")"));
+		assertEquals(template.etag("alice"), template.etag("alice"));
+	}
+
+	@Test
+	void tagsDependOnTheGreetingNotTheVersion() {
+
+		// two instances reach the same greeting at different versions
+		GreetingTemplate first = new GreetingTemplate(1, "Hello");
+		GreetingTemplate second = new GreetingTemplate(42, "Hello");
+
+		assertEquals(first.etag(), second.etag());
+		assertEquals(first.etag("alice"), second.etag("alice"));
+		assertNotEquals(first.etag("alice"), new GreetingTemplate(1, "Hola").etag("alice"));
+	}
+
+	@Test
+	void ifMatchAcceptsGreetingAndResponseTags() {
+
+		GreetingTemplate template = new GreetingTemplate(1, "Hello");
+		GreetingTemplate other = new GreetingTemplate(1, "Hola");
+
+		assertTrue(template.matches(template.etag().toString()));
+		assertTrue(template.matches(template.etag("alice").toString()));
+		assertTrue(template.matches(other.etag() + ", " + template.etag("bob")));
+		assertTrue(template.matches("*"));
+		assertFalse(template.matches(other.etag("alice").toString()));
+		assertFalse(template.matches("W/" + template.etag()));
+	}
+}
@@ -0,0 +1,48 @@
+package io.helidon.examples.conference.mp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonString;
+import javax.json.JsonStructure;
+import javax.ws.rs.core.MediaType;
+
+import org.junit.jupiter.api.Test;
+
+class JsonResponseWriterTest {
+
+	private final JsonResponseWriter writer = new JsonResponseWriter();
+
+	private String write(JsonStructure entity) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writer.writeTo(entity, entity.getClass(), entity.getClass(), null, MediaType.APPLICATION_JSON_TYPE, null,
+				out);
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	void writesTheSameJsonAsJsonP() throws Exception {
+
+		JsonObject entity = Json.createObjectBuilder().add("message", "Hello \"World\"")
+				.add("quoted \"key\"", Json.createArrayBuilder().add(1).add(true).addNull())
+				.add("nested", Json.createObjectBuilder().add("message", "\u00e9")).build();
+
+		assertEquals(entity.toString(), write(entity));
+		// the second response reuses the cached keys
+		assertEquals(entity.toString(), write(entity));
+	}
+
+	@Test
+	void onlyJsonStructuresAreWritten() {
+
+		assertTrue(writer.isWriteable(JsonObject.class, null, null, MediaType.APPLICATION_JSON_TYPE));
+		assertFalse(writer.isWriteable(JsonString.class, null, null, MediaType.APPLICATION_JSON_TYPE));
+		assertFalse(writer.isWriteable(JsonObject.class, null, null, MediaType.TEXT_PLAIN_TYPE));
+	}
+}
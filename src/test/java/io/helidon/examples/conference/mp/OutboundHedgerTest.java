@@ -0,0 +1,138 @@
+package io.helidon.examples.conference.mp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.helidon.examples.conference.mp.common.util.ConcurrencyLimiter;
+import io.helidon.examples.conference.mp.common.util.RestClientEngine;
+import io.helidon.metrics.RegistryFactory;
+
+class OutboundHedgerTest {
+
+	private RestClientEngine engine;
+	private MetricRegistry registry;
+
+	@BeforeEach
+	void setUp() {
+		engine = new RestClientEngine(1, 1, 1000, 1000, 1000, 1000, 1000, 1, 1, 1, 1);
+		registry = RegistryFactory.create().getRegistry(MetricRegistry.Type.APPLICATION);
+	}
+
+	private OutboundHedger hedger(long delay) {
+		return new OutboundHedger(true, 95, delay, delay, 1.0, engine, registry);
+	}
+
+	@Test
+	void slowCallIsHedgedAndTheFirstSuccessWins() throws Exception {
+
+		List<CompletableFuture<String>> attempts = new ArrayList<>();
+		CompletionStage<String> result = hedger(10).hedge(() -> {
+			CompletableFuture<String> attempt = new CompletableFuture<>();
+			synchronized (attempts) {
+				attempts.add(attempt);
+			}
+			return attempt;
+		});
+		awaitTrue(() -> attempts.size() == 2);
+
+		attempts.get(1).complete("hedge");
+		assertEquals("hedge", result.toCompletableFuture().get(1, TimeUnit.SECONDS));
+		assertTrue(attempts.get(0).isCancelled());
+		assertEquals(1, registry.counter("greet.outbound.hedges.won").getCount());
+	}
+
+	@Test
+	void callFailsOnlyWhenEveryAttemptFailed() throws Exception {
+
+		List<CompletableFuture<String>> attempts = new ArrayList<>();
+		CompletableFuture<String> result = hedger(10).hedge(() -> {
+			CompletableFuture<String> attempt = new CompletableFuture<>();
+			synchronized (attempts) {
+				attempts.add(attempt);
+			}
+			return attempt;
+		}).toCompletableFuture();
+		awaitTrue(() -> attempts.size() == 2);
+
+		attempts.get(0).completeExceptionally(new IllegalStateException("first"));
+		assertFalse(result.isDone());
+		attempts.get(1).completeExceptionally(new IllegalStateException("second"));
+		assertTrue(result.isCompletedExceptionally());
+	}
+
+	/**
+	 * The first attempt wins while the hedge is being started: the hedge must
+	 * still be cancelled.
+	 */
+	@Test
+	void hedgeStartedWhileTheFirstAttemptWinsIsCancelled() throws Exception {
+
+		List<CompletableFuture<String>> attempts = new ArrayList<>();
+		CompletionStage<String> result = hedger(10).hedge(() -> {
+			CompletableFuture<String> attempt = new CompletableFuture<>();
+			synchronized (attempts) {
+				if (!attempts.isEmpty()) {
+					attempts.get(0).complete("first");
+				}
+				attempts.add(attempt);
+			}
+			return attempt;
+		});
+
+		assertEquals("first", result.toCompletableFuture().get(1, TimeUnit.SECONDS));
+		awaitTrue(() -> attempts.size() == 2 && attempts.get(1).isCancelled());
+	}
+
+	/**
+	 * The first attempt wins while the hedge is still queued by the limiter:
+	 * the hedge must leave the queue and never hold a slot.
+	 */
+	@Test
+	void hedgeQueuedByTheLimiterReleasesNothingWhenTheFirstAttemptWins() throws Exception {
+
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter("outbound", 2, 1, 2, 0.9, 2.0, 10, 10000,
+				engine.scheduler(), registry.counter("rejected"));
+		CompletableFuture<String> blocker = new CompletableFuture<>();
+		limiter.limit(() -> blocker, (value, error) -> false);
+
+		List<CompletableFuture<String>> attempts = new ArrayList<>();
+		CompletionStage<String> result = hedger(10).hedge(() -> limiter.limit(() -> {
+			CompletableFuture<String> attempt = new CompletableFuture<>();
+			synchronized (attempts) {
+				attempts.add(attempt);
+			}
+			return attempt;
+		}, (value, error) -> false));
+		awaitTrue(() -> limiter.getQueued() == 1);
+
+		attempts.get(0).complete("first");
+		assertEquals("first", result.toCompletableFuture().get(1, TimeUnit.SECONDS));
+		assertEquals(0, limiter.getQueued());
+		assertEquals(1, limiter.getInFlight());
+
+		blocker.complete("done");
+		assertEquals(0, limiter.getInFlight());
+		assertEquals(1, attempts.size());
+	}
+
+	private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "timed out");
+			Thread.sleep(5);
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package io.helidon.examples.conference.mp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+
+class PropertiesSnapshotTest {
+
+	@Test
+	void unchangedPropertiesKeepTheSnapshot() {
+
+		Properties properties = new Properties();
+		properties.setProperty("a", "1");
+		PropertiesSnapshot snapshot = PropertiesSnapshot.empty().refresh(properties);
+
+		assertEquals(1, snapshot.version());
+		assertSame(snapshot, snapshot.refresh(properties));
+	}
+
+	@Test
+	void valueChangeWithTheSameHashIsDetected() {
+
+		// "Aa" and "BB" have the same String.hashCode()
+		Properties properties = new Properties();
+		properties.setProperty("key", "Aa");
+		PropertiesSnapshot before = PropertiesSnapshot.empty().refresh(properties);
+		properties.setProperty("key", "BB");
+		PropertiesSnapshot after = before.refresh(properties);
+
+		assertEquals(2, after.version());
+		assertEquals("BB", after.entries().get("key"));
+		assertNotEquals(before.etag(), after.etag());
+	}
+
+	@Test
+	void swappedEntriesAreDetected() {
+
+		Properties properties = new Properties();
+		properties.setProperty("a", "1");
+		properties.setProperty("b", "2");
+		PropertiesSnapshot before = PropertiesSnapshot.empty().refresh(properties);
+		properties.setProperty("a", "2");
+		properties.setProperty("b", "1");
+
+		assertEquals(2, before.refresh(properties).version());
+	}
+}
@@ -0,0 +1,184 @@
+package io.helidon.examples.conference.mp.common.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.helidon.examples.conference.mp.common.util.ConcurrencyLimiter.Permit;
+import io.helidon.metrics.RegistryFactory;
+
+class ConcurrencyLimiterTest {
+
+	private ScheduledExecutorService scheduler;
+	private Counter rejections;
+
+	@BeforeEach
+	void setUp() {
+		scheduler = Executors.newSingleThreadScheduledExecutor();
+		rejections = RegistryFactory.create().getRegistry(MetricRegistry.Type.APPLICATION).counter("rejected");
+	}
+
+	@AfterEach
+	void tearDown() {
+		scheduler.shutdownNow();
+	}
+
+	private ConcurrencyLimiter limiter(int limit, long queueTimeout) {
+		return new ConcurrencyLimiter("test", limit, 1, limit, 0.9, 2.0, 10, queueTimeout, scheduler, rejections);
+	}
+
+	private static <T> CompletionStage<T> limit(ConcurrencyLimiter limiter, CompletionStage<T> call) {
+		return limiter.limit(() -> call, (value, error) -> false);
+	}
+
+	@Test
+	void cancelledQueuedCallLeavesTheQueue() {
+
+		ConcurrencyLimiter limiter = limiter(1, 10000);
+		CompletableFuture<String> running = new CompletableFuture<>();
+		limit(limiter, running);
+		AtomicBoolean started = new AtomicBoolean();
+		CompletionStage<String> queued = limiter.limit(() -> {
+			started.set(true);
+			return CompletableFuture.completedFuture("queued");
+		}, (value, error) -> false);
+		assertEquals(1, limiter.getQueued());
+
+		queued.toCompletableFuture().cancel(false);
+		assertEquals(0, limiter.getQueued());
+
+		running.complete("running");
+		assertFalse(started.get(), "a cancelled call must not start");
+		assertEquals(0, limiter.getInFlight());
+		assertEquals(0, rejections.getCount());
+		assertEquals("next", limit(limiter, CompletableFuture.completedFuture("next")).toCompletableFuture().join());
+		assertEquals(0, limiter.getInFlight());
+	}
+
+	@Test
+	void cancelledRunningCallKeepsItsSlotUntilItCompletes() {
+
+		ConcurrencyLimiter limiter = limiter(1, 10000);
+		CompletableFuture<String> running = new CompletableFuture<>();
+		CompletionStage<String> result = limit(limiter, running);
+
+		result.toCompletableFuture().cancel(false);
+		assertEquals(1, limiter.getInFlight());
+
+		running.complete("done");
+		assertEquals(0, limiter.getInFlight());
+	}
+
+	@Test
+	void completingCallCancelsCompetitorBeforeHandingOnItsSlot() {
+
+		ConcurrencyLimiter limiter = limiter(1, 10000);
+		CompletableFuture<String> running = new CompletableFuture<>();
+		CompletableFuture<String> first = limit(limiter, running).toCompletableFuture();
+		AtomicBoolean started = new AtomicBoolean();
+		CompletableFuture<String> second = limiter.limit(() -> {
+			started.set(true);
+			return new CompletableFuture<String>();
+		}, (value, error) -> false).toCompletableFuture();
+		first.thenRun(() -> second.cancel(false));
+
+		running.complete("first");
+		assertTrue(second.isCancelled());
+		assertFalse(started.get());
+		assertEquals(0, limiter.getInFlight());
+		assertEquals(0, limiter.getQueued());
+	}
+
+	@Test
+	void permitIsReleasedOnlyOnce() {
+
+		ConcurrencyLimiter limiter = limiter(2, 10000);
+		Permit first = limiter.acquireBlocking();
+		limiter.acquireBlocking();
+		assertEquals(2, limiter.getInFlight());
+
+		first.success();
+		first.success();
+		first.ignore();
+		first.dropped();
+		assertEquals(1, limiter.getInFlight());
+		assertEquals(2, limiter.getLimit());
+	}
+
+	@Test
+	void releasedSlotIsHandedToTheQueuedCall() {
+
+		ConcurrencyLimiter limiter = limiter(1, 10000);
+		Permit running = limiter.acquireBlocking();
+		CompletableFuture<Permit> queued = limiter.acquire();
+		assertFalse(queued.isDone());
+		assertEquals(1, limiter.getQueued());
+
+		running.ignore();
+		assertTrue(queued.isDone());
+		assertEquals(0, limiter.getQueued());
+		assertEquals(1, limiter.getInFlight());
+	}
+
+	@Test
+	void queuedCallIsRejectedAfterTheQueueTimeout() throws Exception {
+
+		ConcurrencyLimiter limiter = limiter(1, 20);
+		limiter.acquireBlocking();
+		CompletableFuture<Permit> queued = limiter.acquire();
+
+		ExecutionException e = assertThrows(ExecutionException.class, () -> queued.get(5, TimeUnit.SECONDS));
+		assertTrue(e.getCause() instanceof RejectedExecutionException);
+		assertEquals(0, limiter.getQueued());
+		assertEquals(1, limiter.getInFlight());
+		assertEquals(1, rejections.getCount());
+	}
+
+	@Test
+	void callFindingTheQueueFullIsRejectedAtOnce() {
+
+		ConcurrencyLimiter limiter = limiter(1, 10000);
+		limiter.acquireBlocking();
+		for (int i = 0; i < 10; i++) {
+			limiter.acquire();
+		}
+
+		assertThrows(RejectedExecutionException.class, limiter::acquireBlocking);
+		assertEquals(10, limiter.getQueued());
+		assertEquals(1, rejections.getCount());
+	}
+
+	@Test
+	void droppedCallLowersTheLimitOnce() {
+
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 10, 1, 10, 0.5, 2.0, 10, 10000, scheduler,
+				rejections);
+		Permit first = limiter.acquireBlocking();
+		Permit second = limiter.acquireBlocking();
+
+		first.dropped();
+		assertEquals(5, limiter.getLimit());
+		// started before the decrease, so it does not lower the limit again
+		second.dropped();
+		assertEquals(5, limiter.getLimit());
+
+		limiter.acquireBlocking().dropped();
+		assertEquals(2, limiter.getLimit());
+	}
+}
@@ -0,0 +1,89 @@
+package io.helidon.examples.conference.mp.common.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+import org.junit.jupiter.api.Test;
+
+class FanOutTest {
+
+	@Test
+	void callsInFlightAreBounded() {
+
+		List<CompletableFuture<String>> calls = new ArrayList<>();
+		CompletableFuture<List<String>> result = FanOut.map(Arrays.asList("a", "b", "c", "d", "e"), 2, item -> {
+			CompletableFuture<String> call = new CompletableFuture<>();
+			calls.add(call);
+			return call;
+		}, (item, error) -> "fallback").toCompletableFuture();
+		assertEquals(2, calls.size());
+
+		calls.get(1).complete("B");
+		assertEquals(3, calls.size());
+		calls.get(0).complete("A");
+		calls.get(2).complete("C");
+		assertEquals(5, calls.size());
+		assertFalse(result.isDone());
+
+		calls.get(4).complete("E");
+		calls.get(3).complete("D");
+		assertEquals(Arrays.asList("A", "B", "C", "D", "E"), result.join());
+	}
+
+	@Test
+	void failedCallsGetTheFallbackOfTheirItem() {
+
+		CompletionStage<List<String>> result = FanOut.map(Arrays.asList("a", "b", "c"), 8, item -> {
+			if (item.equals("b")) {
+				throw new IllegalStateException("thrown");
+			}
+			CompletableFuture<String> call = new CompletableFuture<>();
+			if (item.equals("c")) {
+				call.completeExceptionally(new IllegalStateException("failed"));
+			} else {
+				call.complete(item.toUpperCase());
+			}
+			return call;
+		}, (item, error) -> item + ":" + error.getMessage());
+
+		assertEquals(Arrays.asList("A", "b:thrown", "c:failed"), result.toCompletableFuture().join());
+	}
+
+	@Test
+	void throwingFallbackFailsTheBatch() {
+
+		IllegalStateException thrown = new IllegalStateException("fallback");
+		List<CompletableFuture<String>> calls = new ArrayList<>();
+		CompletableFuture<List<String>> result = FanOut.map(Arrays.asList("a", "b", "c"), 1, item -> {
+			CompletableFuture<String> call = new CompletableFuture<>();
+			calls.add(call);
+			return call;
+		}, (item, error) -> {
+			throw thrown;
+		}).toCompletableFuture();
+
+		calls.get(0).completeExceptionally(new IllegalStateException("failed"));
+		CompletionException error = assertThrows(CompletionException.class, result::join);
+		assertSame(thrown, error.getCause());
+		assertEquals(1, calls.size());
+	}
+
+	@Test
+	void noItemsCompleteAtOnce() {
+
+		CompletionStage<List<String>> result = FanOut.map(Collections.<String>emptyList(), 2,
+				item -> new CompletableFuture<String>(), (item, error) -> null);
+
+		assertEquals(Collections.emptyList(), result.toCompletableFuture().join());
+	}
+}
@@ -0,0 +1,126 @@
+package io.helidon.examples.conference.mp.common.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.apache.http.HttpVersion;
+import org.apache.http.message.BasicHttpResponse;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.helidon.metrics.RegistryFactory;
+
+class ResponseCacheTest {
+
+	private MetricRegistry registry;
+	private final AtomicInteger loads = new AtomicInteger();
+	private CompletableFuture<RestResponse> pending;
+
+	private final Supplier<CompletionStage<RestResponse>> loader = () -> {
+		loads.incrementAndGet();
+		pending = new CompletableFuture<>();
+		return pending;
+	};
+
+	@BeforeEach
+	void setUp() {
+		registry = RegistryFactory.create().getRegistry(MetricRegistry.Type.APPLICATION);
+	}
+
+	private static RestResponse response(String body) {
+		return new RestResponse(new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK"), body);
+	}
+
+	@Test
+	void concurrentMissesShareOneLoad() {
+
+		ResponseCache cache = new ResponseCache(10000, 10000, 10, registry);
+		CompletableFuture<RestResponse> first = cache.get("key", loader).toCompletableFuture();
+		CompletableFuture<RestResponse> second = cache.get("key", loader).toCompletableFuture();
+		assertEquals(1, loads.get());
+
+		RestResponse loaded = response("body");
+		pending.complete(loaded);
+		assertSame(loaded, first.join());
+		assertSame(loaded, second.join());
+		assertSame(loaded, cache.get("key", loader).toCompletableFuture().join());
+		assertEquals(1, loads.get());
+		assertEquals(1, registry.counter("rest.cache.hits").getCount());
+		assertEquals(2, registry.counter("rest.cache.misses").getCount());
+	}
+
+	@Test
+	void staleResponseIsServedWhileOneRefreshRuns() throws Exception {
+
+		ResponseCache cache = new ResponseCache(0, 10000, 10, registry);
+		RestResponse old = response("old");
+		cache.get("key", loader);
+		pending.complete(old);
+		Thread.sleep(5);
+
+		assertSame(old, cache.get("key", loader).toCompletableFuture().join());
+		assertSame(old, cache.get("key", loader).toCompletableFuture().join());
+		assertEquals(2, loads.get());
+		assertEquals(1, registry.counter("rest.cache.refreshes").getCount());
+
+		RestResponse refreshed = response("new");
+		pending.complete(refreshed);
+		assertSame(refreshed, cache.get("key", loader).toCompletableFuture().join());
+	}
+
+	@Test
+	void expiredResponseIsLoadedAgain() throws Exception {
+
+		ResponseCache cache = new ResponseCache(0, 0, 10, registry);
+		cache.get("key", loader);
+		pending.complete(response("old"));
+		Thread.sleep(5);
+
+		CompletableFuture<RestResponse> reloaded = cache.get("key", loader).toCompletableFuture();
+		assertEquals(2, loads.get());
+		RestResponse fresh = response("new");
+		pending.complete(fresh);
+		assertSame(fresh, reloaded.join());
+	}
+
+	@Test
+	void failedResponseIsNotCached() {
+
+		ResponseCache cache = new ResponseCache(10000, 10000, 10, registry);
+		cache.get("key", loader);
+		pending.complete(new RestResponse(new IOException("reset")));
+		cache.get("key", loader);
+		pending.completeExceptionally(new IllegalStateException());
+		cache.get("key", loader);
+
+		assertEquals(3, loads.get());
+	}
+
+	@Test
+	void leastRecentlyUsedKeyIsEvicted() throws Exception {
+
+		ResponseCache cache = new ResponseCache(10000, 10000, 2, registry);
+		for (String key : new String[] { "a", "b" }) {
+			cache.get(key, loader);
+			pending.complete(response(key));
+			Thread.sleep(5);
+		}
+		cache.get("a", loader);
+		Thread.sleep(5);
+		cache.get("c", loader);
+		pending.complete(response("c"));
+		assertEquals(3, loads.get());
+
+		cache.get("a", loader);
+		assertEquals(3, loads.get());
+		cache.get("b", loader);
+		assertEquals(4, loads.get());
+	}
+}
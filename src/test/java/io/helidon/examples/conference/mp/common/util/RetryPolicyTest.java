@@ -0,0 +1,98 @@
+package io.helidon.examples.conference.mp.common.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.message.BasicHttpResponse;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.helidon.metrics.RegistryFactory;
+
+class RetryPolicyTest {
+
+	private final HttpRequestBase get = new HttpGet("https://example.com/");
+	private final HttpRequestBase post = new HttpPost("https://example.com/");
+	private MetricRegistry registry;
+
+	@BeforeEach
+	void setUp() {
+		registry = RegistryFactory.create().getRegistry(MetricRegistry.Type.APPLICATION);
+	}
+
+	private RetryPolicy policy(int budgetMax) {
+		return new RetryPolicy(3, 100, 5000, 0.1, budgetMax, registry);
+	}
+
+	private static RestResponse status(int status, String retryAfter) {
+		BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, status, null);
+		if (retryAfter != null) {
+			response.addHeader("Retry-After", retryAfter);
+		}
+		return new RestResponse(response, null);
+	}
+
+	@Test
+	void unavailableIsRetriedForIdempotentMethodsOnly() {
+
+		RetryPolicy policy = policy(10);
+		RestResponse unavailable = status(503, null);
+		RestResponse reset = new RestResponse(new IOException("reset"));
+
+		assertTrue(policy.delay(get, unavailable, 1) >= 0);
+		assertTrue(policy.delay(get, reset, 1) >= 0);
+		assertEquals(-1, policy.delay(post, unavailable, 1));
+		assertEquals(-1, policy.delay(post, reset, 1));
+		assertTrue(policy.delay(post, status(429, null), 1) >= 0);
+		assertEquals(-1, policy.delay(get, status(404, null), 1));
+		assertEquals(-1, policy.delay(get, status(200, null), 1));
+	}
+
+	@Test
+	void lastAttemptIsNotRetried() {
+
+		RetryPolicy policy = policy(10);
+		RestResponse throttled = status(429, null);
+
+		assertTrue(policy.delay(get, throttled, 2) >= 0);
+		assertEquals(-1, policy.delay(get, throttled, 3));
+	}
+
+	@Test
+	void delayHonoursRetryAfterUpToTheMaximum() {
+
+		RetryPolicy policy = policy(10);
+
+		assertEquals(2000, policy.delay(get, status(429, "2"), 1));
+		assertEquals(-1, policy.delay(get, status(429, "10"), 1));
+		long delay = policy.delay(get, status(429, null), 2);
+		assertTrue(delay >= 0 && delay <= 200, "delay " + delay);
+	}
+
+	@Test
+	void retriesStopWhenTheBudgetIsExhausted() {
+
+		RetryPolicy policy = policy(2);
+		RestResponse throttled = status(429, null);
+
+		assertTrue(policy.delay(get, throttled, 1) >= 0);
+		assertTrue(policy.delay(get, throttled, 1) >= 0);
+		assertEquals(-1, policy.delay(get, throttled, 1));
+		assertEquals(2, registry.counter("rest.retry.attempts").getCount());
+		assertEquals(1, registry.counter("rest.retry.budget.exhausted").getCount());
+
+		// ten first attempts earn one retry at a ratio of 0.1
+		for (int i = 0; i < 9; i++) {
+			policy.delay(get, status(200, null), 1);
+		}
+		assertTrue(policy.delay(get, throttled, 1) >= 0);
+		assertEquals(-1, policy.delay(get, throttled, 1));
+	}
+}
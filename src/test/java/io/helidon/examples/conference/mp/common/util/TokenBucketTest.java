@@ -0,0 +1,48 @@
+package io.helidon.examples.conference.mp.common.util;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class TokenBucketTest {
+
+	@Test
+	void bucketStartsFull() {
+
+		TokenBucket bucket = new TokenBucket(0.1, 3);
+
+		assertTrue(bucket.tryTake());
+		assertTrue(bucket.tryTake());
+		assertTrue(bucket.tryTake());
+		assertFalse(bucket.tryTake());
+	}
+
+	@Test
+	void depositsRefillWholeTokensOnly() {
+
+		TokenBucket bucket = new TokenBucket(0.25, 1);
+		assertTrue(bucket.tryTake());
+
+		for (int i = 0; i < 3; i++) {
+			bucket.deposit();
+		}
+		assertFalse(bucket.tryTake());
+		bucket.deposit();
+		assertTrue(bucket.tryTake());
+		assertFalse(bucket.tryTake());
+	}
+
+	@Test
+	void depositsStopAtTheCapacity() {
+
+		TokenBucket bucket = new TokenBucket(1, 2);
+		for (int i = 0; i < 10; i++) {
+			bucket.deposit();
+		}
+
+		assertTrue(bucket.tryTake());
+		assertTrue(bucket.tryTake());
+		assertFalse(bucket.tryTake());
+	}
+}